@@ -0,0 +1,508 @@
+package main.java.text_editor.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The MappedFileText class exposes a read-only memory-mapped text file as a character sequence.
+ * The file is never read onto the heap as a whole: it is split into pages of a fixed number of
+ * bytes, and a page is only decoded when one of its characters is requested. A small number of
+ * decoded pages is cached, so heap use stays bounded regardless of the file size.
+ *
+ * <p>Opening a file only maps it, which takes constant time. For single-byte charsets a character
+ * offset is also a byte offset. For UTF-8 the first positional query scans the mapped bytes once
+ * to count the characters of every page; the scan decodes nothing and keeps one counter per page.</p>
+ *
+ * <p>Instances are immutable and {@link #subSequence(int, int)} returns a view sharing the same file,
+ * which makes this class suitable as the content of a {@link RopeBuffer} leaf.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class MappedFileText
+        implements CharSequence {
+
+    /** The mapped file shared by all views */
+    private final Source source;
+
+    /** The offset of this view in the whole file, in characters */
+    private final int offset;
+
+    /** The number of characters in this view, or -1 if it is the whole file and not counted yet */
+    private final int length;
+
+    /**
+     * Constructs a view of a mapped file.
+     *
+     * @param source the mapped file
+     * @param offset the offset of the view in characters
+     * @param length the number of characters in the view, or -1 for the whole file
+     */
+    private MappedFileText(Source source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Maps a text file into memory without reading it.
+     *
+     * @param path the path of the file
+     * @param charset the charset of the file, which must be UTF-8 or a single-byte charset
+     * @return the text of the whole file
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public static MappedFileText open(Path path, Charset charset) throws IOException {
+        return new MappedFileText(new Source(path, charset), 0, -1);
+    }
+
+    /**
+     * Gets the number of characters in this text.
+     *
+     * @return the length of the text
+     */
+    @Override
+    public int length() {
+        return length >= 0 ? length : source.charCount();
+    }
+
+    /**
+     * Gets the character at the specified offset, decoding its page if it is not cached.
+     *
+     * @param index the offset of the character
+     * @return the character at the offset
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return source.charAt(offset + index);
+    }
+
+    /**
+     * Gets a view of the characters between the specified offsets without decoding them.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return a view of the range
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        return new MappedFileText(source, offset + start, end - start);
+    }
+
+    /**
+     * Counts the line breaks between the specified offsets of this view.
+     * Whole pages are answered from a line break index built by scanning the mapped bytes once,
+     * so only the pages at both ends of the range are decoded.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the number of {@code '\n'} characters in the range
+     */
+    public int countLineBreaks(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        return source.lineBreaksBefore(offset + end) - source.lineBreaksBefore(offset + start);
+    }
+
+    /**
+     * Finds the offset of a line break in this view, decoding only the page that contains it.
+     *
+     * @param index the zero-based number of the line break within this view
+     * @return the offset of the line break
+     * @throws IndexOutOfBoundsException if the view has no such line break
+     */
+    public int indexOfLineBreak(int index) {
+        if (index < 0 || index >= countLineBreaks(0, length())) {
+            throw new IndexOutOfBoundsException("line break " + index);
+        }
+        return source.lineBreakAt(source.lineBreaksBefore(offset) + index) - offset;
+    }
+
+    /**
+     * Decodes all characters of this view into a string.
+     *
+     * @return the text of this view
+     */
+    @Override
+    public String toString() {
+        int count = length();
+        StringBuilder builder = new StringBuilder(count);
+        source.appendTo(builder, offset, offset + count);
+        return builder.toString();
+    }
+
+    /**
+     * The Source class holds the mapping of a file, its page index and the cache of decoded pages.
+     */
+    private static final class Source {
+
+        /** Number of bytes in a page */
+        private static final int PAGE_BYTES = 1 << 16;
+
+        /** Number of bytes in a mapped segment, a multiple of the page size */
+        private static final int SEGMENT_BYTES = 1 << 30;
+
+        /** Maximum number of decoded pages kept in memory */
+        private static final int CACHED_PAGES = 16;
+
+        /** The mapped segments of the file */
+        private final MappedByteBuffer[] segments;
+
+        /** The size of the file in bytes */
+        private final long size;
+
+        /** The charset of the file */
+        private final Charset charset;
+
+        /** Whether every character takes exactly one byte */
+        private final boolean singleByte;
+
+        /** Byte offset where each page starts, with the file size as the last entry */
+        private long[] pageByteStart;
+
+        /** Character offset where each page starts, with the character count as the last entry */
+        private int[] pageCharStart;
+
+        /** Number of line breaks before each page, with the total count as the last entry */
+        private int[] pageLineBreakStart;
+
+        /** Recently decoded pages, least recently used first */
+        private final Map<Integer, char[]> cache = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest) {
+                return size() > CACHED_PAGES;
+            }
+        };
+
+        /** The most recently used page, checked before the cache for sequential access */
+        private volatile Page lastPage;
+
+        /**
+         * Maps the specified file.
+         *
+         * @param path the path of the file
+         * @param charset the charset of the file
+         * @throws IOException if the file cannot be opened or mapped
+         */
+        Source(Path path, Charset charset) throws IOException {
+            singleByte = charset.newEncoder().maxBytesPerChar() == 1.0f;
+            if (!singleByte && !StandardCharsets.UTF_8.equals(charset)) {
+                throw new IllegalArgumentException("Only UTF-8 and single-byte charsets can be mapped: " + charset);
+            }
+            this.charset = charset;
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = channel.size();
+                if (singleByte && size > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("File has more characters than an editor can hold: " + path);
+                }
+                int segmentCount = (int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+                segments = new MappedByteBuffer[segmentCount];
+                for (int i = 0; i < segmentCount; i++) {
+                    long start = (long) i * SEGMENT_BYTES;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+                }
+            }
+        }
+
+        /**
+         * Gets the number of characters in the file, building the page index if needed.
+         *
+         * @return the number of characters
+         */
+        int charCount() {
+            if (singleByte) {
+                return (int) size;
+            }
+            int[] starts = pageIndex();
+            return starts[starts.length - 1];
+        }
+
+        /**
+         * Gets the character at the specified offset of the file.
+         *
+         * @param index the character offset
+         * @return the character at the offset
+         */
+        char charAt(int index) {
+            Page page = lastPage;
+            if (page == null || index < page.charStart || index >= page.charStart + page.chars.length) {
+                page = page(pageOf(index));
+                lastPage = page;
+            }
+            return page.chars[index - page.charStart];
+        }
+
+        /**
+         * Appends a range of characters to a builder, decoding each page once.
+         *
+         * @param builder the builder to append to
+         * @param start the beginning character offset, inclusive
+         * @param end the ending character offset, exclusive
+         */
+        void appendTo(StringBuilder builder, int start, int end) {
+            int position = start;
+            while (position < end) {
+                Page page = page(pageOf(position));
+                int from = position - page.charStart;
+                int to = Math.min(end - page.charStart, page.chars.length);
+                builder.append(page.chars, from, to - from);
+                position = page.charStart + to;
+            }
+        }
+
+        /**
+         * Counts the line breaks before the specified character offset of the file.
+         *
+         * @param index the character offset, which may be the character count
+         * @return the number of line breaks before the offset
+         */
+        int lineBreaksBefore(int index) {
+            int[] breaks = lineBreakIndex();
+            if (index == charCount()) {
+                return breaks[breaks.length - 1];
+            }
+            int number = pageOf(index);
+            Page page = page(number);
+            int count = breaks[number];
+            for (int i = 0; i < index - page.charStart; i++) {
+                if (page.chars[i] == '\n') {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the character offset of a line break of the file.
+         *
+         * @param index the zero-based number of the line break, which must exist
+         * @return the character offset of the line break
+         */
+        int lineBreakAt(int index) {
+            int[] breaks = lineBreakIndex();
+
+            // Find the last page that starts with at most index line breaks before it
+            int low = 0;
+            int high = breaks.length - 2;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (breaks[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            Page page = page(low);
+            int remaining = index - breaks[low];
+            for (int i = 0; i < page.chars.length; i++) {
+                if (page.chars[i] == '\n' && remaining-- == 0) {
+                    return page.charStart + i;
+                }
+            }
+            throw new IllegalStateException("Line break " + index + " is not on page " + low);
+        }
+
+        /**
+         * Gets the line break index of the file, building it on first use.
+         * The index is built from the raw bytes, which is exact because a line break is a single
+         * byte that never occurs inside another character in UTF-8 and in ASCII-based charsets.
+         *
+         * @return the number of line breaks before each page
+         */
+        private synchronized int[] lineBreakIndex() {
+            if (pageLineBreakStart != null) {
+                return pageLineBreakStart;
+            }
+
+            int pageCount = singleByte ? (int) ((size + PAGE_BYTES - 1) / PAGE_BYTES) : pageIndex().length - 1;
+            int[] breaks = new int[pageCount + 1];
+            int count = 0;
+            for (int page = 0; page < pageCount; page++) {
+                breaks[page] = count;
+                long byteStart = singleByte ? (long) page * PAGE_BYTES : pageByteStart[page];
+                long byteEnd = singleByte ? Math.min(size, byteStart + PAGE_BYTES) : pageByteStart[page + 1];
+                for (long position = byteStart; position < byteEnd; position++) {
+                    if (byteAt(position) == '\n') {
+                        count++;
+                    }
+                }
+            }
+            breaks[pageCount] = count;
+
+            pageLineBreakStart = breaks;
+            return breaks;
+        }
+
+        /**
+         * Finds the page containing the specified character offset.
+         *
+         * @param index the character offset
+         * @return the page number
+         */
+        private int pageOf(int index) {
+            if (singleByte) {
+                return index / PAGE_BYTES;
+            }
+            int[] starts = pageIndex();
+            int page = Arrays.binarySearch(starts, 0, starts.length - 1, index);
+            if (page < 0) {
+                return -page - 2;
+            }
+            // Skip empty pages that start at the same offset
+            while (page + 1 < starts.length - 1 && starts[page + 1] == index) {
+                page++;
+            }
+            return page;
+        }
+
+        /**
+         * Gets a decoded page from the cache, decoding it if it is not there.
+         *
+         * @param number the page number
+         * @return the decoded page
+         */
+        private synchronized Page page(int number) {
+            char[] chars = cache.get(number);
+            if (chars == null) {
+                chars = decode(number);
+                cache.put(number, chars);
+            }
+            int charStart = singleByte ? number * PAGE_BYTES : pageCharStart[number];
+            return new Page(charStart, chars);
+        }
+
+        /**
+         * Decodes the bytes of a page.
+         *
+         * @param number the page number
+         * @return the characters of the page
+         */
+        private char[] decode(int number) {
+            long byteStart = singleByte ? (long) number * PAGE_BYTES : pageByteStart[number];
+            long byteEnd = singleByte ? Math.min(size, byteStart + PAGE_BYTES) : pageByteStart[number + 1];
+            int expected = singleByte ? (int) (byteEnd - byteStart) : pageCharStart[number + 1] - pageCharStart[number];
+
+            byte[] bytes = new byte[(int) (byteEnd - byteStart)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteAt(byteStart + i);
+            }
+
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer decoded;
+            try {
+                decoded = decoder.decode(ByteBuffer.wrap(bytes));
+            } catch (CharacterCodingException e) {
+                throw new IllegalStateException("Cannot decode page " + number, e);
+            }
+
+            // Malformed input may decode to a different number of characters than the index counted
+            char[] chars = new char[expected];
+            int copied = Math.min(expected, decoded.remaining());
+            decoded.get(chars, 0, copied);
+            Arrays.fill(chars, copied, expected, '\uFFFD');
+            return chars;
+        }
+
+        /**
+         * Gets the page index of a UTF-8 file, building it on first use.
+         * Pages start at the first byte of a character, so no character is split between two pages.
+         *
+         * @return the character offset where each page starts
+         */
+        private synchronized int[] pageIndex() {
+            if (pageCharStart != null) {
+                return pageCharStart;
+            }
+
+            int pageCount = (int) ((size + PAGE_BYTES - 1) / PAGE_BYTES);
+            long[] byteStarts = new long[pageCount + 1];
+            int[] charStarts = new int[pageCount + 1];
+
+            for (int page = 1; page < pageCount; page++) {
+                long start = (long) page * PAGE_BYTES;
+                while (start < size && (byteAt(start) & 0xC0) == 0x80) {
+                    start++;
+                }
+                byteStarts[page] = start;
+            }
+            byteStarts[pageCount] = size;
+
+            long chars = 0;
+            for (int page = 0; page < pageCount; page++) {
+                charStarts[page] = (int) chars;
+                for (long position = byteStarts[page]; position < byteStarts[page + 1]; position++) {
+                    int b = byteAt(position);
+                    if ((b & 0xC0) != 0x80) {
+                        // Characters outside the basic plane take two chars
+                        chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+                    }
+                }
+                if (chars > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("File has more characters than an editor can hold.");
+                }
+            }
+            charStarts[pageCount] = (int) chars;
+
+            pageByteStart = byteStarts;
+            pageCharStart = charStarts;
+            return charStarts;
+        }
+
+        /**
+         * Reads a byte of the mapped file.
+         *
+         * @param position the byte offset
+         * @return the byte at the offset
+         */
+        private byte byteAt(long position) {
+            return segments[(int) (position / SEGMENT_BYTES)].get((int) (position % SEGMENT_BYTES));
+        }
+    }
+
+    /**
+     * The Page class pairs the decoded characters of a page with its offset.
+     */
+    private static final class Page {
+
+        /** Character offset where the page starts */
+        final int charStart;
+
+        /** The decoded characters of the page */
+        final char[] chars;
+
+        /**
+         * Constructs a decoded page.
+         *
+         * @param charStart the character offset where the page starts
+         * @param chars the decoded characters
+         */
+        Page(int charStart, char[] chars) {
+            this.charStart = charStart;
+            this.chars = chars;
+        }
+    }
+}
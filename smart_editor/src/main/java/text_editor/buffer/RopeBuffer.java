@@ -0,0 +1,929 @@
+package main.java.text_editor.buffer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The RopeBuffer class stores text as a height-balanced binary tree of short character chunks.
+ * Inserting or deleting text anywhere in the document only rebuilds the path from the root
+ * to the affected chunks, so edits cost O(log n) instead of shifting the whole tail of the text.
+ *
+ * <p>Tree nodes are never modified once created. Every edit produces a new root that shares
+ * all untouched nodes with the previous one, which makes {@link #copy()} a constant-time operation.</p>
+ *
+ * <p>Every node also remembers how many line breaks it holds, which turns the line queries
+ * of {@link TextBuffer} into a single descent from the root. An edit only creates new nodes
+ * along its path, so keeping the counts up to date costs O(log n) per edit.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public class RopeBuffer
+        implements TextBuffer {
+
+    /** Maximum number of characters stored in a single leaf created by this buffer */
+    static final int MAX_LEAF_LENGTH = 512;
+
+    /** Number of characters written per block when serializing the buffer */
+    private static final int SERIALIZATION_BLOCK_LENGTH = 8192;
+
+    /** The root node of the tree, or null if the buffer is empty */
+    private transient Node root;
+
+    /**
+     * Default constructor that creates an empty buffer.
+     */
+    public RopeBuffer() {
+        root = null;
+    }
+
+    /**
+     * Constructor that creates a buffer holding the specified characters.
+     *
+     * @param initialText the initial characters of the buffer
+     */
+    public RopeBuffer(CharSequence initialText) {
+        root = build(initialText, 0, initialText.length());
+    }
+
+    /**
+     * Creates a buffer on top of the specified characters without copying them.
+     * The characters become a single leaf that edits split into views, so the sequence
+     * must never change and its {@code subSequence} should be cheap, as for {@link MappedFileText}.
+     *
+     * @param chars the immutable characters to wrap
+     * @return a buffer holding the characters
+     */
+    public static RopeBuffer wrap(CharSequence chars) {
+        return new RopeBuffer(chars.length() == 0 ? null : new Leaf(chars));
+    }
+
+    /**
+     * Constructor that creates a buffer sharing the specified tree.
+     *
+     * @param root the root node of the tree, or null for an empty buffer
+     */
+    private RopeBuffer(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Inserts a single character at the specified offset.
+     *
+     * @param offset the offset at which to insert the character
+     * @param character the character to insert
+     */
+    @Override
+    public void insert(int offset, char character) {
+        insert(offset, String.valueOf(character));
+    }
+
+    /**
+     * Inserts a sequence of characters at the specified offset.
+     * Short insertions are merged into the leaf at the offset when it has room,
+     * longer ones split the tree and join the new characters in between.
+     *
+     * @param offset the offset at which to insert the characters
+     * @param chars the characters to insert
+     */
+    @Override
+    public void insert(int offset, CharSequence chars) {
+        checkRange(offset, offset);
+        if (chars.length() == 0) {
+            return;
+        }
+        if (root == null) {
+            root = build(chars, 0, chars.length());
+            return;
+        }
+
+        Node inserted = insertIntoLeaf(root, offset, chars);
+        if (inserted != null) {
+            root = inserted;
+        } else {
+            Node[] parts = split(root, offset);
+            root = join(join(parts[0], build(chars, 0, chars.length())), parts[1]);
+        }
+    }
+
+    /**
+     * Removes the characters between the specified offsets.
+     * Deletions inside a single leaf only rebuild that leaf, larger ones
+     * split the tree at both offsets and join the outer parts.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     */
+    @Override
+    public void delete(int start, int end) {
+        checkRange(start, end);
+        if (start == end) {
+            return;
+        }
+
+        Node deleted = deleteFromLeaf(root, start, end);
+        if (deleted != null) {
+            root = deleted;
+        } else {
+            Node[] tail = split(root, end);
+            Node[] head = split(tail[0], start);
+            root = join(head[0], tail[1]);
+        }
+    }
+
+    /**
+     * Removes several ranges of characters in a single pass over the tree.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param count the number of ranges to remove
+     */
+    @Override
+    public void deleteRanges(int[] starts, int[] ends, int count) {
+        replaceRanges(starts, ends, null, count);
+    }
+
+    /**
+     * Replaces several ranges of characters in a single pass over the tree.
+     * The kept parts and the replacements are split off and joined from left to right,
+     * so the whole batch costs O(k log n) for k ranges and leaves a balanced tree.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param replacements the characters to put in place of each range, or null to only remove them
+     * @param count the number of ranges to replace
+     */
+    @Override
+    public void replaceRanges(int[] starts, int[] ends, CharSequence[] replacements, int count) {
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < position || starts[i] > ends[i] || ends[i] > length()) {
+                throw new IndexOutOfBoundsException("start " + starts[i] + ", end " + ends[i] + ", length " + length());
+            }
+            position = ends[i];
+        }
+
+        Node result = null;
+        Node rest = root;
+        position = 0;
+        for (int i = 0; i < count; i++) {
+            Node[] kept = split(rest, starts[i] - position);
+            Node[] removed = split(kept[1], ends[i] - starts[i]);
+            result = join(result, kept[0]);
+            if (replacements != null) {
+                result = join(result, build(replacements[i], 0, replacements[i].length()));
+            }
+            rest = removed[1];
+            position = ends[i];
+        }
+        root = join(result, rest);
+    }
+
+    /**
+     * Gets the number of characters in the buffer.
+     *
+     * @return the length of the text
+     */
+    @Override
+    public int length() {
+        return root == null ? 0 : root.length();
+    }
+
+    /**
+     * Gets the character at the specified offset.
+     *
+     * @param index the offset of the character
+     * @return the character at the offset
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return root.charAt(index);
+    }
+
+    /**
+     * Gets the characters between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the characters in the range
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkRange(start, end);
+        StringBuilder builder = new StringBuilder(end - start);
+        if (start < end) {
+            root.appendTo(builder, start, end);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Iterates over the characters between the specified offsets leaf by leaf.
+     * Each chunk is a view of a leaf, so no characters are copied.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return an iterator over the chunks covering the range, in order
+     */
+    @Override
+    public Iterator<CharSequence> chunks(int start, int end) {
+        checkRange(start, end);
+        return new ChunkIterator(root, start, end);
+    }
+
+    /**
+     * Gets the number of lines in the buffer from the line break count kept in the root node.
+     *
+     * @return the number of lines
+     */
+    @Override
+    public int lineCount() {
+        return root == null ? 1 : root.lineBreaks() + 1;
+    }
+
+    /**
+     * Gets the line containing the specified offset in O(log n) time by adding up
+     * the line breaks of the subtrees left of the path to the offset.
+     *
+     * @param offset the offset in the text, which may be the length of the text
+     * @return the zero-based line number
+     */
+    @Override
+    public int lineOfOffset(int offset) {
+        checkRange(offset, offset);
+        if (root == null) {
+            return 0;
+        }
+        int lines = 0;
+        Node node = root;
+        while (node instanceof Concat) {
+            Concat concat = (Concat) node;
+            int leftLength = concat.left.length();
+            if (offset < leftLength) {
+                node = concat.left;
+            } else {
+                lines += concat.left.lineBreaks();
+                offset -= leftLength;
+                node = concat.right;
+            }
+        }
+        return lines + Leaf.countLineBreaks(((Leaf) node).chars, 0, offset);
+    }
+
+    /**
+     * Gets the offset of the first character of the specified line in O(log n) time
+     * by descending towards the line break that ends the previous line.
+     *
+     * @param line the zero-based line number
+     * @return the offset where the line starts
+     */
+    @Override
+    public int lineStartOffset(int line) {
+        if (line < 0 || line >= lineCount()) {
+            throw new IndexOutOfBoundsException("line " + line + ", line count " + lineCount());
+        }
+        if (line == 0) {
+            return 0;
+        }
+        int remaining = line - 1;
+        int offset = 0;
+        Node node = root;
+        while (node instanceof Concat) {
+            Concat concat = (Concat) node;
+            int leftBreaks = concat.left.lineBreaks();
+            if (remaining < leftBreaks) {
+                node = concat.left;
+            } else {
+                remaining -= leftBreaks;
+                offset += concat.left.length();
+                node = concat.right;
+            }
+        }
+        return offset + Leaf.indexOfLineBreak(((Leaf) node).chars, remaining) + 1;
+    }
+
+    /**
+     * Counts the line breaks between the specified offsets in O(log n) time.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the number of line breaks in the range
+     */
+    @Override
+    public int countLineBreaks(int start, int end) {
+        checkRange(start, end);
+        return lineOfOffset(end) - lineOfOffset(start);
+    }
+
+    /**
+     * Creates a copy of this buffer in constant time.
+     * The copy shares the current tree, which is safe because nodes are never modified.
+     *
+     * @return a copy of this buffer
+     */
+    @Override
+    public TextBuffer copy() {
+        return new RopeBuffer(root);
+    }
+
+    /**
+     * Returns the whole text of the buffer as a string.
+     *
+     * @return the text content as a string
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    /**
+     * Checks that the specified range lies within the buffer.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+    }
+
+    /**
+     * Builds a balanced tree holding the specified range of characters.
+     *
+     * @param chars the characters to store
+     * @param start the beginning offset in chars, inclusive
+     * @param end the ending offset in chars, exclusive
+     * @return the root of the new tree, or null if the range is empty
+     */
+    static Node build(CharSequence chars, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        if (length <= MAX_LEAF_LENGTH) {
+            return new Leaf(chars.subSequence(start, end).toString());
+        }
+        int middle = start + length / 2;
+        return new Concat(build(chars, start, middle), build(chars, middle, end));
+    }
+
+    /**
+     * Inserts characters by rebuilding only the leaf that contains the offset.
+     *
+     * @param node the subtree to insert into
+     * @param offset the offset within the subtree
+     * @param chars the characters to insert
+     * @return the new subtree, or null if the leaf has no room for the characters
+     */
+    private static Node insertIntoLeaf(Node node, int offset, CharSequence chars) {
+        if (node instanceof Leaf) {
+            CharSequence leafChars = ((Leaf) node).chars;
+            if (leafChars.length() + chars.length() > MAX_LEAF_LENGTH) {
+                return null;
+            }
+            StringBuilder builder = new StringBuilder(leafChars.length() + chars.length());
+            builder.append(leafChars, 0, offset).append(chars).append(leafChars, offset, leafChars.length());
+            return new Leaf(builder.toString());
+        }
+
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length();
+        if (offset <= leftLength) {
+            Node left = insertIntoLeaf(concat.left, offset, chars);
+            return left == null ? null : new Concat(left, concat.right);
+        }
+        Node right = insertIntoLeaf(concat.right, offset - leftLength, chars);
+        return right == null ? null : new Concat(concat.left, right);
+    }
+
+    /**
+     * Deletes characters by rebuilding only the leaf that contains the whole range.
+     *
+     * @param node the subtree to delete from
+     * @param start the beginning offset within the subtree, inclusive
+     * @param end the ending offset within the subtree, exclusive
+     * @return the new subtree, or null if the range spans several leaves or empties a leaf
+     */
+    private static Node deleteFromLeaf(Node node, int start, int end) {
+        if (node instanceof Leaf) {
+            CharSequence leafChars = ((Leaf) node).chars;
+            int remaining = leafChars.length() - (end - start);
+            if (remaining == 0 || remaining > MAX_LEAF_LENGTH) {
+                return null;
+            }
+            StringBuilder builder = new StringBuilder(remaining);
+            builder.append(leafChars, 0, start).append(leafChars, end, leafChars.length());
+            return new Leaf(builder.toString());
+        }
+
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length();
+        if (end <= leftLength) {
+            Node left = deleteFromLeaf(concat.left, start, end);
+            return left == null ? null : new Concat(left, concat.right);
+        }
+        if (start >= leftLength) {
+            Node right = deleteFromLeaf(concat.right, start - leftLength, end - leftLength);
+            return right == null ? null : new Concat(concat.left, right);
+        }
+        return null;
+    }
+
+    /**
+     * Splits a tree into the characters before and after the specified offset.
+     *
+     * @param node the tree to split, may be null
+     * @param offset the offset to split at
+     * @return a two-element array holding the left and right trees, either of which may be null
+     */
+    static Node[] split(Node node, int offset) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (offset == 0) {
+            return new Node[] {null, node};
+        }
+        if (offset == node.length()) {
+            return new Node[] {node, null};
+        }
+
+        if (node instanceof Leaf) {
+            CharSequence chars = ((Leaf) node).chars;
+            return new Node[] {
+                    new Leaf(chars.subSequence(0, offset)),
+                    new Leaf(chars.subSequence(offset, chars.length()))
+            };
+        }
+
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length();
+        if (offset < leftLength) {
+            Node[] parts = split(concat.left, offset);
+            return new Node[] {parts[0], join(parts[1], concat.right)};
+        }
+        if (offset > leftLength) {
+            Node[] parts = split(concat.right, offset - leftLength);
+            return new Node[] {join(concat.left, parts[0]), parts[1]};
+        }
+        return new Node[] {concat.left, concat.right};
+    }
+
+    /**
+     * Joins two trees into one balanced tree holding the characters of both in order.
+     * The cost is proportional to the difference in height of the two trees.
+     *
+     * @param left the tree holding the leading characters, may be null
+     * @param right the tree holding the trailing characters, may be null
+     * @return the joined tree, or null if both trees are empty
+     */
+    static Node join(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left instanceof Leaf && right instanceof Leaf
+                && left.length() + right.length() <= MAX_LEAF_LENGTH) {
+            return new Leaf(new StringBuilder(left.length() + right.length())
+                    .append(((Leaf) left).chars).append(((Leaf) right).chars).toString());
+        }
+        if (left.height() > right.height() + 1) {
+            return joinRight((Concat) left, right);
+        }
+        if (right.height() > left.height() + 1) {
+            return joinLeft(left, (Concat) right);
+        }
+        return new Concat(left, right);
+    }
+
+    /**
+     * Joins a shorter tree onto the right spine of a taller one.
+     *
+     * @param left the taller tree
+     * @param right the shorter tree
+     * @return the joined tree
+     */
+    private static Node joinRight(Concat left, Node right) {
+        Node outer = left.left;
+        Node inner = left.right;
+
+        if (inner.height() <= right.height() + 1) {
+            Concat joined = new Concat(inner, right);
+            if (joined.height() <= outer.height() + 1) {
+                return new Concat(outer, joined);
+            }
+            return rotateLeft(new Concat(outer, rotateRight(joined)));
+        }
+
+        Node joined = joinRight((Concat) inner, right);
+        Concat result = new Concat(outer, joined);
+        if (joined.height() <= outer.height() + 1) {
+            return result;
+        }
+        return rotateLeft(result);
+    }
+
+    /**
+     * Joins a shorter tree onto the left spine of a taller one.
+     *
+     * @param left the shorter tree
+     * @param right the taller tree
+     * @return the joined tree
+     */
+    private static Node joinLeft(Node left, Concat right) {
+        Node outer = right.right;
+        Node inner = right.left;
+
+        if (inner.height() <= left.height() + 1) {
+            Concat joined = new Concat(left, inner);
+            if (joined.height() <= outer.height() + 1) {
+                return new Concat(joined, outer);
+            }
+            return rotateRight(new Concat(rotateLeft(joined), outer));
+        }
+
+        Node joined = joinLeft(left, (Concat) inner);
+        Concat result = new Concat(joined, outer);
+        if (joined.height() <= outer.height() + 1) {
+            return result;
+        }
+        return rotateRight(result);
+    }
+
+    /**
+     * Rotates a tree to the left, making its right child the new root.
+     *
+     * @param node the tree to rotate
+     * @return the rotated tree
+     */
+    private static Concat rotateLeft(Concat node) {
+        Concat right = (Concat) node.right;
+        return new Concat(new Concat(node.left, right.left), right.right);
+    }
+
+    /**
+     * Rotates a tree to the right, making its left child the new root.
+     *
+     * @param node the tree to rotate
+     * @return the rotated tree
+     */
+    private static Concat rotateRight(Concat node) {
+        Concat left = (Concat) node.left;
+        return new Concat(left.left, new Concat(left.right, node.right));
+    }
+
+    /**
+     * Writes the buffer as a sequence of string blocks instead of serializing the tree.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int length = length();
+        out.writeInt(length);
+        for (int start = 0; start < length; start += SERIALIZATION_BLOCK_LENGTH) {
+            out.writeUTF(subSequence(start, Math.min(length, start + SERIALIZATION_BLOCK_LENGTH)).toString());
+        }
+    }
+
+    /**
+     * Reads a buffer written by {@link #writeObject(ObjectOutputStream)} and rebuilds its tree.
+     *
+     * @param in the stream to read from
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if a class of the serialized data cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int length = in.readInt();
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(in.readUTF());
+        }
+        root = build(builder, 0, builder.length());
+    }
+
+    /**
+     * The ChunkIterator class walks the leaves of a tree that overlap a range.
+     * Subtrees still to be visited are kept on a stack, so moving to the next leaf
+     * costs amortized constant time.
+     */
+    private static final class ChunkIterator
+            implements Iterator<CharSequence> {
+
+        /** Right subtrees that have not been visited yet */
+        private final Deque<Node> pending = new ArrayDeque<>();
+
+        /** Offsets of the subtrees in {@link #pending} */
+        private final Deque<Integer> pendingOffsets = new ArrayDeque<>();
+
+        /** The ending offset of the iterated range, exclusive */
+        private final int end;
+
+        /** The beginning offset of the iterated range, inclusive */
+        private final int start;
+
+        /** The next leaf to return, or null if the iteration is over */
+        private Leaf leaf;
+
+        /** The offset of {@link #leaf} in the whole text */
+        private int leafOffset;
+
+        /**
+         * Constructs an iterator over the specified range of a tree.
+         *
+         * @param root the root of the tree, may be null
+         * @param start the beginning offset, inclusive
+         * @param end the ending offset, exclusive
+         */
+        ChunkIterator(Node root, int start, int end) {
+            this.start = start;
+            this.end = end;
+            if (start < end) {
+                descend(root, 0, start);
+            }
+        }
+
+        /**
+         * Descends from a subtree to the leaf containing the specified offset,
+         * remembering the right subtrees passed on the way.
+         *
+         * @param node the subtree to descend from
+         * @param nodeOffset the offset of the subtree in the whole text
+         * @param offset the offset to look for
+         */
+        private void descend(Node node, int nodeOffset, int offset) {
+            while (node instanceof Concat) {
+                Concat concat = (Concat) node;
+                int leftLength = concat.left.length();
+                if (offset < nodeOffset + leftLength) {
+                    pending.push(concat.right);
+                    pendingOffsets.push(nodeOffset + leftLength);
+                    node = concat.left;
+                } else {
+                    nodeOffset += leftLength;
+                    node = concat.right;
+                }
+            }
+            leaf = (Leaf) node;
+            leafOffset = nodeOffset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && leafOffset < end;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Leaf current = leaf;
+            int chunkStart = Math.max(start, leafOffset) - leafOffset;
+            int chunkEnd = Math.min(end, leafOffset + current.length()) - leafOffset;
+
+            if (pending.isEmpty()) {
+                leaf = null;
+            } else {
+                int offset = pendingOffsets.pop();
+                descend(pending.pop(), offset, offset);
+            }
+
+            if (chunkStart == 0 && chunkEnd == current.length()) {
+                return current.chars;
+            }
+            return CharBuffer.wrap(current.chars, chunkStart, chunkEnd);
+        }
+    }
+
+    /**
+     * The Node class is the base of all tree nodes.
+     * Nodes are immutable, so a subtree can be shared by any number of buffers.
+     */
+    abstract static class Node {
+
+        /**
+         * Gets the number of characters in this subtree.
+         *
+         * @return the length of the subtree
+         */
+        abstract int length();
+
+        /**
+         * Gets the height of this subtree, where a leaf has height 0.
+         *
+         * @return the height of the subtree
+         */
+        abstract int height();
+
+        /**
+         * Gets the character at the specified offset within this subtree.
+         *
+         * @param index the offset of the character
+         * @return the character at the offset
+         */
+        abstract char charAt(int index);
+
+        /**
+         * Gets the number of line breaks in this subtree.
+         * The count is computed when first requested and then kept in the node, so after
+         * an edit only the nodes rebuilt on the edited path have to be counted again.
+         *
+         * @return the number of {@code '\n'} characters in the subtree
+         */
+        abstract int lineBreaks();
+
+        /**
+         * Appends a range of this subtree to a string builder.
+         *
+         * @param builder the builder to append to
+         * @param start the beginning offset within the subtree, inclusive
+         * @param end the ending offset within the subtree, exclusive
+         */
+        abstract void appendTo(StringBuilder builder, int start, int end);
+    }
+
+    /**
+     * The Leaf class holds a chunk of characters.
+     */
+    static final class Leaf
+            extends Node {
+
+        /** The characters stored in this leaf */
+        final CharSequence chars;
+
+        /** The number of line breaks in this leaf, or -1 if not counted yet */
+        private int lineBreaks = -1;
+
+        /**
+         * Constructs a leaf holding the specified characters.
+         *
+         * @param chars the characters of the leaf
+         */
+        Leaf(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        /**
+         * Counts the line breaks in a range of characters.
+         * Mapped files answer from their own line break index instead of being scanned.
+         *
+         * @param chars the characters to look at
+         * @param start the beginning offset, inclusive
+         * @param end the ending offset, exclusive
+         * @return the number of line breaks in the range
+         */
+        static int countLineBreaks(CharSequence chars, int start, int end) {
+            if (chars instanceof MappedFileText) {
+                return ((MappedFileText) chars).countLineBreaks(start, end);
+            }
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (chars.charAt(i) == '\n') {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the offset of a line break within a sequence of characters.
+         *
+         * @param chars the characters to look at
+         * @param index the zero-based number of the line break, which must exist
+         * @return the offset of the line break
+         */
+        static int indexOfLineBreak(CharSequence chars, int index) {
+            if (chars instanceof MappedFileText) {
+                return ((MappedFileText) chars).indexOfLineBreak(index);
+            }
+            for (int i = 0; ; i++) {
+                if (chars.charAt(i) == '\n' && index-- == 0) {
+                    return i;
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return chars.length();
+        }
+
+        @Override
+        int height() {
+            return 0;
+        }
+
+        @Override
+        char charAt(int index) {
+            return chars.charAt(index);
+        }
+
+        @Override
+        int lineBreaks() {
+            // Counting is idempotent, so a race between threads only repeats the work
+            if (lineBreaks < 0) {
+                lineBreaks = countLineBreaks(chars, 0, chars.length());
+            }
+            return lineBreaks;
+        }
+
+        @Override
+        void appendTo(StringBuilder builder, int start, int end) {
+            builder.append(chars, start, end);
+        }
+    }
+
+    /**
+     * The Concat class joins two subtrees, with the characters of the left one first.
+     */
+    static final class Concat
+            extends Node {
+
+        /** The subtree holding the leading characters */
+        final Node left;
+
+        /** The subtree holding the trailing characters */
+        final Node right;
+
+        /** The total number of characters in both subtrees */
+        private final int length;
+
+        /** The height of this subtree */
+        private final int height;
+
+        /** The number of line breaks in both subtrees, or -1 if not counted yet */
+        private int lineBreaks = -1;
+
+        /**
+         * Constructs a node joining the specified subtrees.
+         *
+         * @param left the subtree holding the leading characters
+         * @param right the subtree holding the trailing characters
+         */
+        Concat(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+            this.height = Math.max(left.height(), right.height()) + 1;
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+
+        @Override
+        char charAt(int index) {
+            Node node = this;
+            while (node instanceof Concat) {
+                Concat concat = (Concat) node;
+                int leftLength = concat.left.length();
+                if (index < leftLength) {
+                    node = concat.left;
+                } else {
+                    index -= leftLength;
+                    node = concat.right;
+                }
+            }
+            return node.charAt(index);
+        }
+
+        @Override
+        int lineBreaks() {
+            if (lineBreaks < 0) {
+                lineBreaks = left.lineBreaks() + right.lineBreaks();
+            }
+            return lineBreaks;
+        }
+
+        @Override
+        void appendTo(StringBuilder builder, int start, int end) {
+            int leftLength = left.length();
+            if (start < leftLength) {
+                left.appendTo(builder, start, Math.min(end, leftLength));
+            }
+            if (end > leftLength) {
+                right.appendTo(builder, Math.max(0, start - leftLength), end - leftLength);
+            }
+        }
+    }
+}
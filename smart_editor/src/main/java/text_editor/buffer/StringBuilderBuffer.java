@@ -0,0 +1,242 @@
+package main.java.text_editor.buffer;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The StringBuilderBuffer class stores the whole text in a single {@link StringBuilder}.
+ * It is the simplest buffer implementation and works well for small documents,
+ * but every edit shifts all characters that follow it.
+ *
+ * <p>Copies share the builder of the original buffer until one of them is modified,
+ * so {@link #copy()} takes constant time and the characters are copied on the first write.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public class StringBuilderBuffer
+        implements TextBuffer {
+
+    /** The characters of the buffer */
+    private StringBuilder text;
+
+    /** Whether {@link #text} may also be used by a copy of this buffer */
+    private transient boolean shared;
+
+    /**
+     * Default constructor that creates an empty buffer.
+     */
+    public StringBuilderBuffer() {
+        text = new StringBuilder();
+    }
+
+    /**
+     * Constructor that creates a buffer holding the specified characters.
+     *
+     * @param initialText the initial characters of the buffer
+     */
+    public StringBuilderBuffer(CharSequence initialText) {
+        text = new StringBuilder(initialText);
+    }
+
+    /**
+     * Inserts a single character at the specified offset.
+     *
+     * @param offset the offset at which to insert the character
+     * @param character the character to insert
+     */
+    @Override
+    public void insert(int offset, char character) {
+        prepareWrite();
+        text.insert(offset, character);
+    }
+
+    /**
+     * Inserts a sequence of characters at the specified offset.
+     *
+     * @param offset the offset at which to insert the characters
+     * @param chars the characters to insert
+     */
+    @Override
+    public void insert(int offset, CharSequence chars) {
+        prepareWrite();
+        text.insert(offset, chars);
+    }
+
+    /**
+     * Removes the characters between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     */
+    @Override
+    public void delete(int start, int end) {
+        if (start < 0 || end > text.length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + text.length());
+        }
+        prepareWrite();
+        text.delete(start, end);
+    }
+
+    /**
+     * Removes several ranges of characters in a single pass over the builder,
+     * moving every kept character at most once.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param count the number of ranges to remove
+     */
+    @Override
+    public void deleteRanges(int[] starts, int[] ends, int count) {
+        prepareWrite();
+        int write = count == 0 ? 0 : starts[0];
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < write || ends[i] < starts[i] || ends[i] > text.length()) {
+                throw new IndexOutOfBoundsException("start " + starts[i] + ", end " + ends[i] + ", length " + text.length());
+            }
+            int keptEnd = i + 1 < count ? starts[i + 1] : text.length();
+            for (int read = ends[i]; read < keptEnd; read++) {
+                text.setCharAt(write++, text.charAt(read));
+            }
+        }
+        if (count > 0) {
+            text.setLength(write);
+        }
+    }
+
+    /**
+     * Replaces several ranges of characters in a single pass, copying every kept
+     * character once instead of shifting the tail of the text for each range.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param replacements the characters to put in place of each range
+     * @param count the number of ranges to replace
+     */
+    @Override
+    public void replaceRanges(int[] starts, int[] ends, CharSequence[] replacements, int count) {
+        int newLength = text.length();
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < position || starts[i] > ends[i] || ends[i] > text.length()) {
+                throw new IndexOutOfBoundsException("start " + starts[i] + ", end " + ends[i] + ", length " + text.length());
+            }
+            newLength += replacements[i].length() - (ends[i] - starts[i]);
+            position = ends[i];
+        }
+
+        StringBuilder result = new StringBuilder(newLength);
+        position = 0;
+        for (int i = 0; i < count; i++) {
+            result.append(text, position, starts[i]).append(replacements[i]);
+            position = ends[i];
+        }
+        result.append(text, position, text.length());
+        text = result;
+        shared = false;
+    }
+
+    /**
+     * Replaces the characters between the specified offsets with new characters.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @param chars the characters to insert in place of the removed range
+     */
+    @Override
+    public void replace(int start, int end, CharSequence chars) {
+        if (start < 0 || end > text.length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + text.length());
+        }
+        prepareWrite();
+        text.delete(start, end);
+        text.insert(start, chars);
+    }
+
+    /**
+     * Gets the number of characters in the buffer.
+     *
+     * @return the length of the text
+     */
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Gets the character at the specified offset.
+     *
+     * @param index the offset of the character
+     * @return the character at the offset
+     */
+    @Override
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    /**
+     * Gets the characters between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the characters in the range
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.substring(start, end);
+    }
+
+    /**
+     * Iterates over the characters between the specified offsets.
+     * The whole range is returned as a single view of the underlying builder.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return an iterator over a single chunk covering the range
+     */
+    @Override
+    public Iterator<CharSequence> chunks(int start, int end) {
+        if (start < 0 || end > text.length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + text.length());
+        }
+        if (start == end) {
+            return Collections.emptyIterator();
+        }
+        return Collections.<CharSequence>singletonList(CharBuffer.wrap(text, start, end)).iterator();
+    }
+
+    /**
+     * Creates a copy of this buffer in constant time.
+     * Both buffers share the same builder until one of them is modified.
+     *
+     * @return a copy of this buffer
+     */
+    @Override
+    public TextBuffer copy() {
+        StringBuilderBuffer copy = new StringBuilderBuffer();
+        copy.text = text;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Returns the whole text of the buffer as a string.
+     *
+     * @return the text content as a string
+     */
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    /**
+     * Gives this buffer its own builder if the current one may be shared with a copy.
+     */
+    private void prepareWrite() {
+        if (shared) {
+            text = new StringBuilder(text);
+            shared = false;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package main.java.text_editor.buffer;
+
+import java.io.Serializable;
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The TextBuffer interface defines the storage used by an editor to hold its text.
+ * Implementations decide how characters are laid out in memory, which lets the
+ * editor switch between a simple contiguous buffer and a tree-based one without
+ * changing any of the editing code built on top of it.
+ *
+ * <p>Offsets are always character offsets into the whole text, starting at 0.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public interface TextBuffer
+        extends CharSequence, Serializable {
+
+    /**
+     * Inserts a single character at the specified offset.
+     *
+     * @param offset the offset at which to insert the character
+     * @param character the character to insert
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    void insert(int offset, char character);
+
+    /**
+     * Inserts a sequence of characters at the specified offset.
+     *
+     * @param offset the offset at which to insert the characters
+     * @param chars the characters to insert
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    void insert(int offset, CharSequence chars);
+
+    /**
+     * Removes the characters between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    void delete(int start, int end);
+
+    /**
+     * Removes the character at the specified offset.
+     *
+     * @param offset the offset of the character to remove
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    default void deleteCharAt(int offset) {
+        delete(offset, offset + 1);
+    }
+
+    /**
+     * Removes several ranges of characters at once.
+     * The ranges are given in offsets of the text before any of them is removed,
+     * must be sorted by position and must not overlap.
+     * The default implementation removes them one by one from the last to the first.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param count the number of ranges to remove
+     * @throws IndexOutOfBoundsException if a range is out of bounds
+     */
+    default void deleteRanges(int[] starts, int[] ends, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            delete(starts[i], ends[i]);
+        }
+    }
+
+    /**
+     * Replaces several ranges of characters at once.
+     * The ranges are given in offsets of the text before any of them is replaced,
+     * must be sorted by position and must not overlap; empty ranges insert characters.
+     * The default implementation replaces them one by one from the last to the first.
+     *
+     * @param starts the beginning offsets of the ranges, inclusive
+     * @param ends the ending offsets of the ranges, exclusive
+     * @param replacements the characters to put in place of each range
+     * @param count the number of ranges to replace
+     * @throws IndexOutOfBoundsException if a range is out of bounds or the ranges overlap
+     */
+    default void replaceRanges(int[] starts, int[] ends, CharSequence[] replacements, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (i > 0 && starts[i] < ends[i - 1]) {
+                throw new IndexOutOfBoundsException("start " + starts[i] + ", previous end " + ends[i - 1]);
+            }
+            replace(starts[i], ends[i], replacements[i]);
+        }
+    }
+
+    /**
+     * Replaces the characters between the specified offsets with new characters.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @param chars the characters to insert in place of the removed range
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    default void replace(int start, int end, CharSequence chars) {
+        delete(start, end);
+        insert(start, chars);
+    }
+
+    /**
+     * Iterates over the characters between the specified offsets in consecutive chunks.
+     * The chunks are read-only views of the stored characters, so walking a range this way
+     * does not copy it. The default implementation returns a single view of the whole range.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return an iterator over the chunks covering the range, in order
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    default Iterator<CharSequence> chunks(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        if (start == end) {
+            return Collections.emptyIterator();
+        }
+        return Collections.<CharSequence>singletonList(CharBuffer.wrap(this, start, end)).iterator();
+    }
+
+    /**
+     * Gets the number of lines in the text. Lines are separated by {@code '\n'},
+     * so an empty text has one line and a text ending with a line break has an empty last line.
+     * The default implementation scans the whole text.
+     *
+     * @return the number of lines
+     */
+    default int lineCount() {
+        return countLineBreaks(0, length()) + 1;
+    }
+
+    /**
+     * Gets the line containing the specified offset, which is the number of line breaks before it.
+     * The default implementation scans the text up to the offset.
+     *
+     * @param offset the offset in the text, which may be the length of the text
+     * @return the zero-based line number
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    default int lineOfOffset(int offset) {
+        return countLineBreaks(0, offset);
+    }
+
+    /**
+     * Gets the offset of the first character of the specified line.
+     * The default implementation scans the text up to the line.
+     *
+     * @param line the zero-based line number
+     * @return the offset where the line starts
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    default int lineStartOffset(int line) {
+        if (line < 0) {
+            throw new IndexOutOfBoundsException("line " + line);
+        }
+        if (line == 0) {
+            return 0;
+        }
+        int lines = 0;
+        int chunkStart = 0;
+        Iterator<CharSequence> iterator = chunks(0, length());
+        while (iterator.hasNext()) {
+            CharSequence chunk = iterator.next();
+            for (int i = 0; i < chunk.length(); i++) {
+                if (chunk.charAt(i) == '\n' && ++lines == line) {
+                    return chunkStart + i + 1;
+                }
+            }
+            chunkStart += chunk.length();
+        }
+        throw new IndexOutOfBoundsException("line " + line + ", line count " + (lines + 1));
+    }
+
+    /**
+     * Counts the line breaks between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the number of {@code '\n'} characters in the range
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    default int countLineBreaks(int start, int end) {
+        int count = 0;
+        Iterator<CharSequence> iterator = chunks(start, end);
+        while (iterator.hasNext()) {
+            CharSequence chunk = iterator.next();
+            for (int i = 0; i < chunk.length(); i++) {
+                if (chunk.charAt(i) == '\n') {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates an independent copy of this buffer.
+     * Changes made to the copy are not visible in this buffer and vice versa.
+     *
+     * @return a copy of this buffer
+     */
+    TextBuffer copy();
+}
@@ -0,0 +1,145 @@
+package main.java.text_editor.dictionary;
+
+import main.java.text_editor.prediction.SpellingCorrector;
+import main.java.text_editor.prediction.WordPredictor;
+import main.java.text_editor.search.CompiledDictionary;
+import main.java.text_editor.search.WordLookup;
+import main.java.text_editor.search.WordSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SpellDictionary class is an immutable spell checking dictionary that can be shared by any
+ * number of editors and threads. It holds the words together with the structures built from them,
+ * a set for lookups, a word predictor and a spelling corrector, so editors using the same dictionary
+ * do not build them again.
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class SpellDictionary {
+
+    /** The words of the dictionary, never modified */
+    private final List<String> words;
+
+    /** The set of the words used for lookups */
+    private final WordLookup lookup;
+
+    /** The predictor over the words, created when first needed */
+    private volatile WordPredictor predictor;
+
+    /** The spelling corrector over the words, created when first needed */
+    private volatile SpellingCorrector corrector;
+
+    /**
+     * Constructs a dictionary over the specified words and lookup set.
+     *
+     * @param words the words of the dictionary
+     * @param lookup the set of the words
+     */
+    private SpellDictionary(List<String> words, WordLookup lookup) {
+        this.words = words;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Creates a dictionary holding a copy of the specified words.
+     *
+     * @param words the words of the dictionary
+     * @return the dictionary
+     */
+    public static SpellDictionary of(Collection<String> words) {
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(words));
+        return new SpellDictionary(copy, new WordSet(copy));
+    }
+
+    /**
+     * Creates a dictionary over a compiled dictionary. Words are looked up in the mapped file,
+     * and strings are only created for the words when the word list is read.
+     *
+     * @param compiled the compiled dictionary
+     * @return the dictionary
+     */
+    public static SpellDictionary of(CompiledDictionary compiled) {
+        return new SpellDictionary(compiled.words(), compiled);
+    }
+
+    /**
+     * Gets the words of the dictionary.
+     *
+     * @return an unmodifiable list of the words
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Gets the set of the words used for lookups.
+     *
+     * @return the set of the words
+     */
+    public WordLookup getLookup() {
+        return lookup;
+    }
+
+    /**
+     * Checks whether the dictionary contains the specified word converted to lower case.
+     *
+     * @param word the word to look up
+     * @return true if the dictionary contains the word, false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        return lookup.contains(word);
+    }
+
+    /**
+     * Gets the word predictor over the words of the dictionary, creating it when first needed.
+     * The predictor is shared, so words learned in one editor are predicted earlier in every editor
+     * using the dictionary, and no words must be added to it.
+     *
+     * @return the word predictor
+     */
+    public WordPredictor getPredictor() {
+        WordPredictor result = predictor;
+        if (result == null) {
+            synchronized (this) {
+                result = predictor;
+                if (result == null) {
+                    result = new WordPredictor(words);
+                    predictor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the word predictor over the words of the dictionary without creating it.
+     *
+     * @return the word predictor, or null if it was not needed yet
+     */
+    public WordPredictor getCreatedPredictor() {
+        return predictor;
+    }
+
+    /**
+     * Gets the spelling corrector over the words of the dictionary, creating it when first needed.
+     *
+     * @return the spelling corrector
+     */
+    public SpellingCorrector getCorrector() {
+        SpellingCorrector result = corrector;
+        if (result == null) {
+            synchronized (this) {
+                result = corrector;
+                if (result == null) {
+                    result = new SpellingCorrector(words);
+                    corrector = result;
+                }
+            }
+        }
+        return result;
+    }
+}
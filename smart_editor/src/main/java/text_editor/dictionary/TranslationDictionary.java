@@ -0,0 +1,143 @@
+package main.java.text_editor.dictionary;
+
+import main.java.text_editor.search.CompiledDictionary;
+import main.java.text_editor.search.PhraseTrie;
+import main.java.text_editor.search.WordMap;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TranslationDictionary class is an immutable translation dictionary that can be shared by any
+ * number of editors and threads. Translations are kept either in a map built from word lists or
+ * in a compiled dictionary, which is read in place. Entries of several words are also kept as phrases,
+ * which are built into a {@link PhraseTrie} when first needed.
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class TranslationDictionary {
+
+    /** The translations by source word, never modified, or null if a compiled dictionary is used */
+    private final Map<String, String> translations;
+
+    /** The translations of the map, looked up in place ignoring case, or null if a compiled dictionary is used */
+    private final WordMap<String> lookup;
+
+    /** The compiled dictionary holding the translations, or null if the map is used */
+    private final CompiledDictionary compiled;
+
+    /** The phrases among the entries, built when first needed */
+    private volatile PhraseTrie phrases;
+
+    /**
+     * Constructs a dictionary over a map or a compiled dictionary.
+     *
+     * @param translations the translations by source word, or null
+     * @param compiled the compiled dictionary, or null
+     */
+    private TranslationDictionary(Map<String, String> translations, CompiledDictionary compiled) {
+        this.translations = translations;
+        this.lookup = translations == null ? null : new WordMap<>(translations);
+        this.compiled = compiled;
+    }
+
+    /**
+     * Creates a dictionary translating each source word to the target word at the same position.
+     * When a source word occurs more than once, its last translation is kept.
+     *
+     * @param sourceWords the words in the source language
+     * @param targetWords the corresponding words in the target language
+     * @return the dictionary
+     * @throws IllegalArgumentException if the lists have different sizes
+     */
+    public static TranslationDictionary of(List<String> sourceWords, List<String> targetWords) {
+        if (sourceWords.size() != targetWords.size()) {
+            throw new IllegalArgumentException("Source and target dictionaries must have the same size.");
+        }
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < sourceWords.size(); i++) {
+            map.put(sourceWords.get(i), targetWords.get(i));
+        }
+        return new TranslationDictionary(Collections.unmodifiableMap(map), null);
+    }
+
+    /**
+     * Creates a dictionary over a compiled dictionary with translations.
+     *
+     * @param compiled the compiled dictionary
+     * @return the dictionary
+     * @throws IllegalArgumentException if the compiled dictionary has no translations
+     */
+    public static TranslationDictionary of(CompiledDictionary compiled) {
+        if (!compiled.hasTranslations()) {
+            throw new IllegalArgumentException("The dictionary has no translations.");
+        }
+        return new TranslationDictionary(null, compiled);
+    }
+
+    /**
+     * Translates the specified word converted to lower case.
+     * The word is looked up in place, so translating allocates nothing.
+     *
+     * @param word the word to translate
+     * @return the translation, or null if there is none
+     */
+    public CharSequence translate(CharSequence word) {
+        if (compiled != null) {
+            return compiled.translate(word);
+        }
+        return lookup.get(word);
+    }
+
+    /**
+     * Gets the phrases of several words among the entries, building the trie when first needed.
+     * The trie is shared, so it must only be read.
+     *
+     * @return the phrases and their translations
+     */
+    public PhraseTrie getPhrases() {
+        PhraseTrie result = phrases;
+        if (result == null) {
+            synchronized (this) {
+                result = phrases;
+                if (result == null) {
+                    result = new PhraseTrie();
+                    if (compiled == null) {
+                        for (Map.Entry<String, String> entry : translations.entrySet()) {
+                            if (PhraseTrie.isPhrase(entry.getKey())) {
+                                result.add(entry.getKey(), entry.getValue());
+                            }
+                        }
+                    } else {
+                        for (int i = 0; i < compiled.size(); i++) {
+                            if (PhraseTrie.isPhrase(compiled.getWord(i))) {
+                                result.add(compiled.getWord(i).toString(), compiled.getTranslation(i).toString());
+                            }
+                        }
+                    }
+                    phrases = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the translations into a new modifiable map, in the order of the source dictionary
+     * or, for a compiled dictionary, in sorted order.
+     *
+     * @return a new map of the translations by source word
+     */
+    public LinkedHashMap<String, String> toMap() {
+        if (compiled == null) {
+            return new LinkedHashMap<>(translations);
+        }
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < compiled.size(); i++) {
+            map.put(compiled.getWord(i).toString(), compiled.getTranslation(i).toString());
+        }
+        return map;
+    }
+}
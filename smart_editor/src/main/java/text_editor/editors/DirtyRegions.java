@@ -0,0 +1,117 @@
+package main.java.text_editor.editors;
+
+import java.util.Arrays;
+
+/**
+ * The DirtyRegions class keeps the regions of an editor's text that changed since it was last transformed.
+ * Regions are kept sorted and disjoint in offsets of the current text, and every change to the text
+ * moves them along, so a transform only has to look at the words touching them.
+ *
+ * <p>Updating the regions costs time proportional to their number, which stays small because
+ * regions touching each other are merged.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+final class DirtyRegions {
+
+    /** Number of regions */
+    private int count;
+
+    /** Beginning offset of each region, inclusive */
+    private int[] starts;
+
+    /** Ending offset of each region, exclusive */
+    private int[] ends;
+
+    /**
+     * Constructs an empty set of regions.
+     */
+    DirtyRegions() {
+        starts = new int[4];
+        ends = new int[4];
+    }
+
+    /**
+     * Marks the region produced by a change as dirty and moves the regions after it.
+     *
+     * @param start the offset where the changed region begins
+     * @param oldEnd the offset where the region ended before the change
+     * @param newEnd the offset where the region ends after the change
+     */
+    void markChanged(int start, int oldEnd, int newEnd) {
+        int shift = newEnd - oldEnd;
+        int[] newStarts = new int[count + 1];
+        int[] newEnds = new int[count + 1];
+        int newCount = 0;
+
+        int mergedStart = start;
+        int mergedEnd = newEnd;
+        boolean added = false;
+        for (int i = 0; i < count; i++) {
+            if (ends[i] < start) {
+                newStarts[newCount] = starts[i];
+                newEnds[newCount++] = ends[i];
+            } else if (starts[i] > oldEnd) {
+                if (!added) {
+                    newStarts[newCount] = mergedStart;
+                    newEnds[newCount++] = mergedEnd;
+                    added = true;
+                }
+                newStarts[newCount] = starts[i] + shift;
+                newEnds[newCount++] = ends[i] + shift;
+            } else {
+                // The region touches the change, so it becomes part of the changed region
+                mergedStart = Math.min(mergedStart, starts[i]);
+                mergedEnd = Math.max(mergedEnd, ends[i] > oldEnd ? ends[i] + shift : newEnd);
+            }
+        }
+        if (!added) {
+            newStarts[newCount] = mergedStart;
+            newEnds[newCount++] = mergedEnd;
+        }
+
+        starts = newStarts;
+        ends = newEnds;
+        count = newCount;
+    }
+
+    /**
+     * Moves the regions through a batch of edits that are not themselves dirty.
+     *
+     * @param editStarts the sorted beginning offsets of the edits
+     * @param editEnds the ending offsets of the edits
+     * @param replacements the characters inserted by the edits
+     * @param editCount the number of edits
+     */
+    void mapThrough(int[] editStarts, int[] editEnds, CharSequence[] replacements, int editCount) {
+        starts = Editor.mapOffsets(Arrays.copyOf(starts, count), editStarts, editEnds, replacements, editCount);
+        ends = Editor.mapOffsets(Arrays.copyOf(ends, count), editStarts, editEnds, replacements, editCount);
+    }
+
+    /**
+     * Gets the regions as pairs of beginning and ending offsets.
+     *
+     * @return the regions, ordered by position
+     */
+    int[] toArray() {
+        int[] regions = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            regions[2 * i] = starts[i];
+            regions[2 * i + 1] = ends[i];
+        }
+        return regions;
+    }
+
+    /**
+     * Creates an independent copy of these regions.
+     *
+     * @return a copy of the regions
+     */
+    DirtyRegions copy() {
+        DirtyRegions copy = new DirtyRegions();
+        copy.starts = Arrays.copyOf(starts, Math.max(count, 1));
+        copy.ends = Arrays.copyOf(ends, Math.max(count, 1));
+        copy.count = count;
+        return copy;
+    }
+}
@@ -0,0 +1,231 @@
+package main.java.text_editor.editors;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The EditBatch class collects insertions, deletions and replacements that are applied
+ * to an editor as a single unit with {@link Editor#applyEdits(EditBatch)}.
+ *
+ * <p>All offsets refer to the text as it is before the batch is applied, so edits can be added
+ * in any order without adjusting them for earlier edits. Edits must not overlap, although
+ * several insertions may share an offset, in which case they are applied in the order added.</p>
+ *
+ * <p>Applying a batch rebuilds the buffer in one pass, reports one changed region and records
+ * one undoable step, however many edits it contains.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class EditBatch {
+
+    /** Number of edits in the batch */
+    private int count;
+
+    /** Beginning offset of each edit, inclusive */
+    private int[] starts = new int[8];
+
+    /** Ending offset of each edit, exclusive */
+    private int[] ends = new int[8];
+
+    /** Characters inserted by each edit */
+    private CharSequence[] replacements = new CharSequence[8];
+
+    /** Whether the edits are known to be sorted by offset */
+    private boolean sorted = true;
+
+    /**
+     * Adds an insertion to the batch.
+     *
+     * @param offset the offset at which to insert the characters
+     * @param chars the characters to insert
+     * @return this batch
+     */
+    public EditBatch insert(int offset, CharSequence chars) {
+        return replace(offset, offset, chars);
+    }
+
+    /**
+     * Adds a deletion to the batch.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return this batch
+     */
+    public EditBatch delete(int start, int end) {
+        return replace(start, end, "");
+    }
+
+    /**
+     * Adds a replacement to the batch. The characters are copied, so later changes
+     * to a mutable sequence do not affect the batch.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @param chars the characters to put in place of the range
+     * @return this batch
+     * @throws IllegalArgumentException if the range is negative or reversed
+     */
+    public EditBatch replace(int start, int end, CharSequence chars) {
+        if (start < 0 || start > end) {
+            throw new IllegalArgumentException("Invalid edit range: start " + start + ", end " + end);
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            replacements = Arrays.copyOf(replacements, count * 2);
+        }
+        if (count > 0 && start < starts[count - 1]) {
+            sorted = false;
+        }
+        starts[count] = start;
+        ends[count] = end;
+        replacements[count] = chars.toString();
+        count++;
+        return this;
+    }
+
+    /**
+     * Adds all edits of another batch after the edits of this batch.
+     *
+     * @param other the batch whose edits to add
+     * @return this batch
+     */
+    EditBatch addAll(EditBatch other) {
+        int newCount = count + other.count;
+        if (newCount > starts.length) {
+            starts = Arrays.copyOf(starts, newCount);
+            ends = Arrays.copyOf(ends, newCount);
+            replacements = Arrays.copyOf(replacements, newCount);
+        }
+        System.arraycopy(other.starts, 0, starts, count, other.count);
+        System.arraycopy(other.ends, 0, ends, count, other.count);
+        System.arraycopy(other.replacements, 0, replacements, count, other.count);
+        if (!other.sorted || (count > 0 && other.count > 0 && other.starts[0] < starts[count - 1])) {
+            sorted = false;
+        }
+        count = newCount;
+        return this;
+    }
+
+    /**
+     * Gets the number of edits in the batch.
+     *
+     * @return the number of edits
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks whether the batch has no edits.
+     *
+     * @return true if the batch is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Sorts the edits by offset, keeping the order of insertions at the same offset,
+     * and checks that no two edits overlap.
+     *
+     * @throws IllegalArgumentException if two edits overlap
+     */
+    void sort() {
+        if (!sorted) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // The sort is stable, so insertions at the same offset keep their order
+            Arrays.sort(order, (a, b) -> Integer.compare(starts[a], starts[b]));
+
+            int[] sortedStarts = new int[starts.length];
+            int[] sortedEnds = new int[ends.length];
+            CharSequence[] sortedReplacements = new CharSequence[replacements.length];
+            for (int i = 0; i < count; i++) {
+                sortedStarts[i] = starts[order[i]];
+                sortedEnds[i] = ends[order[i]];
+                sortedReplacements[i] = replacements[order[i]];
+            }
+            starts = sortedStarts;
+            ends = sortedEnds;
+            replacements = sortedReplacements;
+            sorted = true;
+        }
+
+        for (int i = 1; i < count; i++) {
+            if (starts[i] < ends[i - 1]) {
+                throw new IllegalArgumentException("Edits overlap: [" + starts[i - 1] + ", " + ends[i - 1]
+                        + ") and [" + starts[i] + ", " + ends[i] + ")");
+            }
+        }
+    }
+
+    /**
+     * Moves the edits of this batch past changes made to the text after the batch was computed.
+     * Edits before a change stay where they are, edits after it are shifted, and edits that
+     * overlap or touch a changed region are dropped, since the text they were computed for is gone.
+     *
+     * @param changes the changes made since the batch was computed, in the order they were made
+     * @return a new batch holding the edits that still apply
+     * @throws IllegalArgumentException if two edits overlap
+     */
+    EditBatch rebase(Collection<TextChange> changes) {
+        sort();
+        EditBatch rebased = new EditBatch();
+        rebased.starts = Arrays.copyOf(starts, Math.max(count, 1));
+        rebased.ends = Arrays.copyOf(ends, Math.max(count, 1));
+        rebased.replacements = Arrays.copyOf(replacements, Math.max(count, 1));
+        rebased.count = count;
+
+        for (TextChange change : changes) {
+            int shift = change.getNewEnd() - change.getOldEnd();
+            int kept = 0;
+            for (int i = 0; i < rebased.count; i++) {
+                int start = rebased.starts[i];
+                int end = rebased.ends[i];
+                if (end >= change.getStart() && start <= change.getOldEnd()) {
+                    continue;
+                }
+                if (start > change.getOldEnd()) {
+                    start += shift;
+                    end += shift;
+                }
+                rebased.starts[kept] = start;
+                rebased.ends[kept] = end;
+                rebased.replacements[kept] = rebased.replacements[i];
+                kept++;
+            }
+            rebased.count = kept;
+        }
+        return rebased;
+    }
+
+    /**
+     * Gets the beginning offsets of the edits, sorted once {@link #sort()} was called.
+     *
+     * @return the internal array of beginning offsets
+     */
+    int[] starts() {
+        return starts;
+    }
+
+    /**
+     * Gets the ending offsets of the edits, sorted once {@link #sort()} was called.
+     *
+     * @return the internal array of ending offsets
+     */
+    int[] ends() {
+        return ends;
+    }
+
+    /**
+     * Gets the inserted characters of the edits, sorted once {@link #sort()} was called.
+     *
+     * @return the internal array of replacements
+     */
+    CharSequence[] replacements() {
+        return replacements;
+    }
+}
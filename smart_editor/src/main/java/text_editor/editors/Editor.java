@@ -1,8 +1,26 @@
 package main.java.text_editor.editors;
 
+import main.java.text_editor.buffer.MappedFileText;
+import main.java.text_editor.buffer.RopeBuffer;
+import main.java.text_editor.buffer.TextBuffer;
+import main.java.text_editor.history.EditHistory;
+import main.java.text_editor.history.EditOperation;
 import main.java.text_editor.interfaces.Editable;
+import main.java.text_editor.search.WordMatcher;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The abstract Editor class serves as the base class for all editor implementations.
@@ -12,22 +30,80 @@ import java.io.Serializable;
  * <p>This class implements {@link Editable}, {@link Cloneable}, and {@link Serializable}
  * interfaces, providing a foundation for more specialized editors.</p>
  *
+ * <p>The text itself is kept in a {@link TextBuffer}. Editors use a {@link RopeBuffer}
+ * by default, so edits at the caret stay fast regardless of the document size.
+ * Callers that only need to look at the text should use the read-only views returned by
+ * {@link #getText()}, {@link #charAt(int)}, {@link #subSequence(int, int)} and
+ * {@link #chunks(int, int)} instead of {@link #toString()}, which copies the whole document.</p>
+ *
+ * <p>Besides the main caret an editor can hold any number of extra carets. Typing and deleting
+ * then act at every caret at once through a single {@link EditBatch}, so N carets cost one pass
+ * over the buffer instead of N separate edits.</p>
+ *
+ * <p>An editor is meant to be used from a single thread. Work on its text in the background goes
+ * through {@link #snapshot()}: the snapshot is read on another thread, the result comes back as an
+ * {@link EditBatch} and {@link #applyEdits(EditBatch, TextSnapshot)} rebases it onto the live text.</p>
+ *
+ * <p>Transforms are incremental: the editor keeps the regions changed since the last transform, and
+ * {@link TextSnapshot#getTransformRanges()} tells a transform which words it has to look at again.
+ * Subclasses call {@link #markAllDirty()} when a setting that affects every word changes.</p>
+ *
  * @author Ugnius Teišerskis
  */
 public abstract class Editor
         implements Editable, Cloneable, Serializable {
 
-    /** The text content of the editor stored as a StringBuilder for efficient manipulation */
-    protected StringBuilder text;
+    /** Number of recent changes kept for rebasing edits computed on snapshots */
+    private static final int MAX_LOGGED_CHANGES = 4096;
+
+    /** The text content of the editor stored in a buffer for efficient manipulation */
+    protected TextBuffer text;
 
     /** The current caret position within the text */
     protected int caretPosition;
 
+    /** Extra carets besides {@link #caretPosition}, sorted and never modified in place, or null if there are none */
+    private transient int[] extraCarets;
+
+    /** The undo and redo history of the editor, created when first needed */
+    private transient EditHistory history;
+
+    /** The region changed since the last call to {@link #takePendingChange()}, or null if there is none */
+    private transient TextChange pendingChange;
+
+    /** Number of changes made to the text, which identifies the version held by a snapshot */
+    private transient long version;
+
+    /** The most recent changes, oldest first, or null if none were logged yet */
+    private transient ArrayDeque<TextChange> changeLog;
+
+    /** The version of the text right before the oldest change in {@link #changeLog} */
+    private transient long changeLogStart;
+
+    /** Regions changed since the last transform, or null if the whole text has to be transformed */
+    private transient DirtyRegions dirtyRegions;
+
+    /** Number of calls to {@link #markAllDirty()}, which tells whether one happened since a snapshot was taken */
+    private transient int allDirtyCount;
+
+    /** Whether the changes being made come from a transform and so leave the text clean */
+    private transient boolean applyingTransform;
+
     /**
      * Default constructor that initializes an empty editor with caret at position 0.
      */
     public Editor() {
-        text = new StringBuilder();
+        this(new RopeBuffer());
+    }
+
+    /**
+     * Constructor that initializes the editor on top of the specified buffer
+     * and places the caret at the beginning of its text.
+     *
+     * @param buffer the buffer holding the text of the editor
+     */
+    protected Editor(TextBuffer buffer) {
+        text = buffer;
         caretPosition = 0;
     }
 
@@ -38,40 +114,68 @@ public abstract class Editor
      * @param initialText the initial text to populate the editor with
      */
     public Editor(String initialText) {
-        this();
-        text.append(initialText);
+        this(new RopeBuffer(initialText));
         caretPosition = initialText.length();
     }
 
     /**
      * Adds a single character at the current caret position and advances the caret.
+     * With extra carets, the character is inserted at every caret in a single batch.
      *
      * @param character the character to add
      */
     public void addText(char character) {
+        if (extraCarets != null) {
+            insertAtCarets(String.valueOf(character));
+            return;
+        }
         text.insert(caretPosition, character);
+        textChanged(caretPosition, caretPosition, caretPosition + 1);
+        getHistory().record(EditOperation.Kind.TYPING, caretPosition, "", String.valueOf(character),
+                caretPosition, caretPosition + 1);
         caretPosition++;
     }
 
     /**
      * Adds a string at the current caret position and advances the caret
-     * to the end of the inserted text.
+     * to the end of the inserted text. With extra carets, the string is inserted
+     * at every caret in a single batch.
      *
      * @param text the string to add
      */
     public void addText(String text) {
+        if (extraCarets != null) {
+            insertAtCarets(text);
+            return;
+        }
         this.text.insert(caretPosition, text);
+        textChanged(caretPosition, caretPosition, caretPosition + text.length());
+        getHistory().record(EditOperation.Kind.OTHER, caretPosition, "", text,
+                caretPosition, caretPosition + text.length());
         caretPosition += text.length();
     }
 
     /**
      * Removes the character immediately before the caret position and moves
-     * the caret backward by one position.
+     * the caret backward by one position. With extra carets, the character before
+     * every caret is removed in a single batch.
      * If the text is empty, this method has no effect.
      */
     public final void removeLastCharacter() {
-        if (!text.isEmpty()) {
+        if (extraCarets != null) {
+            EditBatch batch = new EditBatch();
+            for (int caret : getCarets()) {
+                if (caret > 0) {
+                    batch.delete(caret - 1, caret);
+                }
+            }
+            applyEdits(batch);
+        } else if (!text.isEmpty()) {
+            String removed = String.valueOf(text.charAt(caretPosition - 1));
             text.deleteCharAt(caretPosition - 1);
+            textChanged(caretPosition - 1, caretPosition, caretPosition - 1);
+            getHistory().record(EditOperation.Kind.DELETING, caretPosition - 1, removed, "",
+                    caretPosition, caretPosition - 1);
             caretPosition--;
         }
     }
@@ -79,10 +183,25 @@ public abstract class Editor
     /**
      * Removes the word at the current caret position.
      * The method identifies a word by looking for characters that are not whitespace.
+     * With extra carets, the word before every caret is removed in a single batch.
      * If no word is found or the text is empty, this method has no effect.
      */
     public void removeWord() {
-        if (!text.isEmpty() && caretPosition > 0) {
+        if (extraCarets != null) {
+            EditBatch batch = new EditBatch();
+            int previousCaret = 0;
+            for (int caret : getCarets()) {
+                int wordStart = caret;
+                while (wordStart > previousCaret && !Character.isWhitespace(text.charAt(wordStart - 1))) {
+                    wordStart--;
+                }
+                if (wordStart < caret) {
+                    batch.delete(wordStart, caret);
+                }
+                previousCaret = caret;
+            }
+            applyEdits(batch);
+        } else if (!text.isEmpty() && caretPosition > 0) {
             int searchStart = caretPosition - 1;
 
             int wordStart = searchStart;
@@ -91,7 +210,10 @@ public abstract class Editor
             }
 
             if (wordStart < caretPosition) {
+                CharSequence removed = text.subSequence(wordStart, caretPosition);
                 text.delete(wordStart, caretPosition);
+                textChanged(wordStart, caretPosition, wordStart);
+                getHistory().record(EditOperation.Kind.OTHER, wordStart, removed, "", caretPosition, wordStart);
                 caretPosition = wordStart;
             }
         }
@@ -105,28 +227,268 @@ public abstract class Editor
      * @param word the word to remove from the text
      */
     public void removeWord(String word) {
-        String textStr = text.toString();
-        int index = textStr.lastIndexOf(word);
+        removeWords(Collections.singletonList(word));
+    }
 
-        while (index != -1) {
-            boolean isWordBoundaryBefore = (index == 0 || Character.isWhitespace(textStr.charAt(index - 1)));
-            boolean isWordBoundaryAfter = (index + word.length() == textStr.length() || Character.isWhitespace(textStr.charAt(index + word.length())));
+    /**
+     * Removes all occurrences of the specified words from the text in a single pass.
+     * Follows the same rules as {@link #removeWord(String)}: only complete words are removed,
+     * and a space following a removed word that does not start the text is removed with it.
+     *
+     * @param words the words to remove from the text
+     */
+    public void removeWords(Collection<String> words) {
+        removeWords(new WordMatcher(words));
+    }
 
-            if (isWordBoundaryBefore && isWordBoundaryAfter) {
-                text.delete(index, index + word.length());
+    /**
+     * Removes all whole-word occurrences found by the specified matcher in a single pass.
+     * Building the matcher once and reusing it avoids rebuilding it for every document
+     * when the same word list is removed from many texts.
+     *
+     * @param matcher the matcher for the words to remove
+     */
+    public void removeWords(WordMatcher matcher) {
+        if (matcher.isEmpty() || text.isEmpty()) {
+            return;
+        }
 
-                if (index > 0 && index < text.length() && text.charAt(index) == ' ') {
-                    text.deleteCharAt(index);
-                }
+        int[] matches = matcher.findWholeWords(text.chunks(0, text.length()));
+        int count = matches.length / 2;
+        if (count == 0) {
+            return;
+        }
 
-                if (index < caretPosition) {
-                    caretPosition = Math.max(0, caretPosition - (word.length() + (index < text.length() && text.charAt(index) == ' ' ? 1 : 0)));
-                }
+        EditBatch batch = new EditBatch();
+        for (int i = 0; i < count; i++) {
+            int start = matches[2 * i];
+            int end = matches[2 * i + 1];
+            if (start > 0 && end < text.length() && text.charAt(end) == ' ') {
+                end++;
             }
+            batch.delete(start, end);
+        }
+        applyEdits(batch);
+    }
+
+    /**
+     * Applies a batch of edits as a single unit.
+     * The buffer is rebuilt in one pass, a single changed region covering all edits is reported
+     * and one undoable step is recorded. The caret follows the text around it: it moves with
+     * edits made before it, and moves to the end of the replacement of an edit that covers it.
+     *
+     * @param batch the edits to apply, with offsets in the text before the batch
+     * @throws IllegalArgumentException if two edits overlap
+     * @throws IndexOutOfBoundsException if an edit is out of bounds
+     */
+    @Override
+    public void applyEdits(EditBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort();
+        int count = batch.size();
+        int[] starts = batch.starts();
+        int[] ends = batch.ends();
+        CharSequence[] replacements = batch.replacements();
+        if (ends[count - 1] > text.length()) {
+            throw new IndexOutOfBoundsException("end " + ends[count - 1] + ", length " + text.length());
+        }
+
+        int delta = 0;
+        for (int i = 0; i < count; i++) {
+            delta += replacements[i].length() - (ends[i] - starts[i]);
+        }
+        int newCaret = mapOffsets(new int[] {caretPosition}, starts, ends, replacements, count)[0];
+
+        // Each recorded offset must be valid in the text left by the replacements recorded before it
+        EditHistory editHistory = getHistory();
+        editHistory.beginOperation(caretPosition);
+        for (int i = count - 1; i >= 0; i--) {
+            editHistory.record(EditOperation.Kind.OTHER, starts[i], text.subSequence(starts[i], ends[i]),
+                    replacements[i], caretPosition, caretPosition);
+        }
+
+        text.replaceRanges(starts, ends, replacements, count);
+        textChanged(starts[0], ends[count - 1], ends[count - 1] + delta);
+        caretPosition = newCaret;
+        if (extraCarets != null) {
+            extraCarets = distinctCarets(mapOffsets(extraCarets, starts, ends, replacements, count), caretPosition);
+        }
+        editHistory.endOperation(caretPosition);
+    }
+
+    /**
+     * Applies a batch of edits computed on a snapshot of the text.
+     * The edits are first moved past every change made since the snapshot was taken;
+     * edits touching a region that changed in the meantime are dropped.
+     *
+     * @param batch the edits to apply, with offsets in the text of the snapshot
+     * @param snapshot the snapshot the edits were computed on
+     * @return true if the edits were applied, false if the snapshot is too old to rebase onto the current text
+     * @throws IllegalArgumentException if the snapshot was taken from another editor or two edits overlap
+     */
+    public boolean applyEdits(EditBatch batch, TextSnapshot snapshot) {
+        if (snapshot.getSource() != this) {
+            throw new IllegalArgumentException("The snapshot was taken from another editor.");
+        }
+        if (snapshot.getVersion() == version) {
+            applyEdits(batch);
+            return true;
+        }
+        List<TextChange> changes = changesSince(snapshot);
+        if (changes == null) {
+            return false;
+        }
+
+        applyEdits(batch.rebase(changes));
+        return true;
+    }
 
-            textStr = text.toString();
-            index = textStr.lastIndexOf(word);
+    /**
+     * Applies the edits of a transform computed on a snapshot of the text.
+     * The edits are rebased like in {@link #applyEdits(EditBatch, TextSnapshot)}, but the text
+     * they produce is not marked as changed, so the next transform skips it. Only the regions
+     * changed since the snapshot was taken remain to be transformed.
+     *
+     * @param edits the edits computed by {@link #transformEdits(TextSnapshot)}
+     * @param snapshot the snapshot the edits were computed on
+     * @return true if the edits were applied, false if the snapshot is too old to rebase onto the current text
+     * @throws IllegalArgumentException if the snapshot was taken from another editor or two edits overlap
+     */
+    public boolean applyTransform(EditBatch edits, TextSnapshot snapshot) {
+        if (snapshot.getSource() != this) {
+            throw new IllegalArgumentException("The snapshot was taken from another editor.");
+        }
+        List<TextChange> changes = changesSince(snapshot);
+        if (changes == null) {
+            return false;
         }
+
+        DirtyRegions remaining = new DirtyRegions();
+        for (TextChange change : changes) {
+            remaining.markChanged(change.getStart(), change.getOldEnd(), change.getNewEnd());
+        }
+        EditBatch rebased = edits.rebase(changes);
+        applyingTransform = true;
+        try {
+            applyEdits(rebased);
+        } finally {
+            applyingTransform = false;
+        }
+        remaining.mapThrough(rebased.starts(), rebased.ends(), rebased.replacements(), rebased.size());
+        if (snapshot.getAllDirtyCount() == allDirtyCount) {
+            dirtyRegions = remaining;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the changes made since the specified snapshot was taken.
+     *
+     * @param snapshot a snapshot taken from this editor
+     * @return the changes in the order they were made, or null if some of them are no longer logged
+     */
+    List<TextChange> changesSince(TextSnapshot snapshot) {
+        if (snapshot.getVersion() == version) {
+            return Collections.emptyList();
+        }
+        if (changeLog == null || snapshot.getVersion() < changeLogStart) {
+            return null;
+        }
+        List<TextChange> changes = new ArrayList<>(changeLog);
+        return changes.subList((int) (snapshot.getVersion() - changeLogStart), changes.size());
+    }
+
+    /**
+     * Takes an immutable snapshot of the text in constant time.
+     * The snapshot can be read on any thread while this editor keeps changing.
+     *
+     * @return a snapshot of the current text
+     */
+    public TextSnapshot snapshot() {
+        return new TextSnapshot(this, text.copy(), version,
+                dirtyRegions == null ? null : dirtyRegions.toArray(), allDirtyCount);
+    }
+
+    /**
+     * Marks the whole text as changed, so the next transform looks at every word again.
+     * Subclasses call this when a setting the transform depends on changes.
+     */
+    protected void markAllDirty() {
+        dirtyRegions = null;
+        allDirtyCount++;
+    }
+
+    /**
+     * Gets the version of the text, which grows with every change.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Inserts the same characters at every caret as a single batch.
+     *
+     * @param chars the characters to insert
+     */
+    private void insertAtCarets(String chars) {
+        EditBatch batch = new EditBatch();
+        for (int caret : getCarets()) {
+            batch.insert(caret, chars);
+        }
+        applyEdits(batch);
+    }
+
+    /**
+     * Maps offsets of the text before a batch of edits to offsets of the text after it.
+     * An offset moves with the edits before it, and an offset inside a replaced range moves
+     * to the end of the replacement. Both arrays are walked once, so the cost is linear.
+     *
+     * @param offsets the offsets to map, sorted
+     * @param starts the sorted beginning offsets of the edits
+     * @param ends the ending offsets of the edits
+     * @param replacements the characters inserted by the edits
+     * @param count the number of edits
+     * @return the mapped offsets, sorted
+     */
+    static int[] mapOffsets(int[] offsets, int[] starts, int[] ends, CharSequence[] replacements, int count) {
+        int[] mapped = new int[offsets.length];
+        int edit = 0;
+        int delta = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            while (edit < count && ends[edit] <= offset) {
+                delta += replacements[edit].length() - (ends[edit] - starts[edit]);
+                edit++;
+            }
+            if (edit < count && starts[edit] < offset) {
+                mapped[i] = starts[edit] + delta + replacements[edit].length();
+            } else {
+                mapped[i] = offset + delta;
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Removes duplicates and the main caret from a sorted array of extra carets.
+     *
+     * @param carets the sorted carets
+     * @param mainCaret the position of the main caret
+     * @return the remaining carets, or null if none remain
+     */
+    private static int[] distinctCarets(int[] carets, int mainCaret) {
+        int count = 0;
+        int[] distinct = new int[carets.length];
+        for (int caret : carets) {
+            if (caret != mainCaret && (count == 0 || distinct[count - 1] != caret)) {
+                distinct[count++] = caret;
+            }
+        }
+        return count == 0 ? null : Arrays.copyOf(distinct, count);
     }
 
     /**
@@ -144,6 +506,64 @@ public abstract class Editor
         this.caretPosition = position;
     }
 
+    /**
+     * Adds an extra caret at the specified position.
+     * The position is adjusted to the closest valid position, and nothing happens
+     * if a caret is already there.
+     *
+     * @param position the position of the new caret
+     */
+    public void addCaret(int position) {
+        position = Math.max(0, Math.min(position, text.length()));
+        if (position == caretPosition) {
+            return;
+        }
+        if (extraCarets == null) {
+            extraCarets = new int[] {position};
+            return;
+        }
+        int index = Arrays.binarySearch(extraCarets, position);
+        if (index < 0) {
+            index = -index - 1;
+            int[] carets = new int[extraCarets.length + 1];
+            System.arraycopy(extraCarets, 0, carets, 0, index);
+            carets[index] = position;
+            System.arraycopy(extraCarets, index, carets, index + 1, extraCarets.length - index);
+            extraCarets = carets;
+        }
+    }
+
+    /**
+     * Removes all extra carets, keeping only the main caret.
+     */
+    public void clearExtraCarets() {
+        extraCarets = null;
+    }
+
+    /**
+     * Gets the positions of all carets, including the main one.
+     *
+     * @return the sorted caret positions
+     */
+    public int[] getCarets() {
+        if (extraCarets == null) {
+            return new int[] {caretPosition};
+        }
+        int[] carets = Arrays.copyOf(extraCarets, extraCarets.length + 1);
+        carets[extraCarets.length] = caretPosition;
+        Arrays.sort(carets);
+        return carets;
+    }
+
+    /**
+     * Gets the number of carets, including the main one.
+     *
+     * @return the number of carets
+     */
+    public int getCaretCount() {
+        return extraCarets == null ? 1 : extraCarets.length + 1;
+    }
+
     /**
      * Gets the current caret position in the text.
      *
@@ -163,11 +583,448 @@ public abstract class Editor
     }
 
     /**
-     * Abstract method that transforms the text content according to the specific
-     * editor implementation.
-     * Subclasses must implement this method to define their transformation behavior.
+     * Gets the number of lines in the text.
+     * Lines are separated by {@code '\n'}, so an empty text has a single line.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return text.lineCount();
+    }
+
+    /**
+     * Gets the line containing the specified offset.
+     * The default rope buffer answers this in O(log n) time.
+     *
+     * @param offset the offset in the text, which may be the length of the text
+     * @return the zero-based line number
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public int getLineOfOffset(int offset) {
+        return text.lineOfOffset(offset);
+    }
+
+    /**
+     * Gets the offset of the first character of the specified line.
+     * The default rope buffer answers this in O(log n) time.
+     *
+     * @param line the zero-based line number
+     * @return the offset where the line starts
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public int getLineStartOffset(int line) {
+        return text.lineStartOffset(line);
+    }
+
+    /**
+     * Gets the column of the specified offset within its line.
+     *
+     * @param offset the offset in the text, which may be the length of the text
+     * @return the zero-based column
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public int getColumnOfOffset(int offset) {
+        return offset - text.lineStartOffset(text.lineOfOffset(offset));
+    }
+
+    /**
+     * Gets the line the caret is on.
+     *
+     * @return the zero-based line of the caret
+     */
+    public int getCaretLine() {
+        return text.lineOfOffset(caretPosition);
+    }
+
+    /**
+     * Gets the column of the caret within its line.
+     *
+     * @return the zero-based column of the caret
+     */
+    public int getCaretColumn() {
+        return getColumnOfOffset(caretPosition);
+    }
+
+    /**
+     * Moves the caret to the specified line and column.
+     * A line out of bounds is adjusted to the first or last line, and a column
+     * out of bounds is adjusted to the beginning or end of the line.
+     *
+     * @param line the zero-based line
+     * @param column the zero-based column
+     */
+    public void setCaretPosition(int line, int column) {
+        int lastLine = text.lineCount() - 1;
+        line = Math.max(0, Math.min(line, lastLine));
+        int lineStart = text.lineStartOffset(line);
+        int lineEnd = line == lastLine ? text.length() : text.lineStartOffset(line + 1) - 1;
+        this.caretPosition = lineStart + Math.max(0, Math.min(column, lineEnd - lineStart));
+    }
+
+    /**
+     * Gets a read-only view of the text in the editor.
+     * The view always reflects the current text and does not copy it.
+     *
+     * @return the text of the editor as a character sequence
+     */
+    public CharSequence getText() {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                return text.toString();
+            }
+        };
+    }
+
+    /**
+     * Gets the character at the specified offset of the text.
+     *
+     * @param index the offset of the character
+     * @return the character at the offset
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    /**
+     * Gets the characters between the specified offsets of the text.
+     * Only the requested range is copied.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the characters in the range
+     * @throws IndexOutOfBoundsException if the range is out of bounds
      */
-    public abstract void transform();
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    /**
+     * Iterates over the characters between the specified offsets in consecutive read-only chunks.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return an iterator over the chunks covering the range, in order
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public Iterator<CharSequence> chunks(int start, int end) {
+        return text.chunks(start, end);
+    }
+
+    /**
+     * Opens a plain text file in large-file mode, replacing the current text.
+     * The file is memory-mapped read-only and becomes the base of a rope buffer, so only the pages
+     * that are viewed or transformed are decoded. A file in a single-byte charset opens in constant
+     * time, but a UTF-8 file is first scanned once to count the characters of each page, which takes
+     * time linear in the size of the file. Edits are kept in memory on top of the mapped file,
+     * which itself is never modified.
+     * The caret is placed at the beginning of the text and the edit history is cleared.
+     *
+     * @param path the path of the file to open
+     * @param charset the charset of the file, UTF-8 or a single-byte charset
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public void openFile(Path path, Charset charset) throws IOException {
+        openFile(MappedFileText.open(path, charset));
+    }
+
+    /**
+     * Opens a memory-mapped text file in large-file mode, replacing the current text.
+     * A file whose length was already read, for example on a background thread, opens in constant
+     * time; otherwise a UTF-8 file is scanned here as described in {@link #openFile(Path, Charset)}.
+     * The caret is placed at the beginning of the text and the edit history is cleared.
+     *
+     * @param file the mapped text of the whole file
+     */
+    public void openFile(MappedFileText file) {
+        setBuffer(RopeBuffer.wrap(file));
+    }
+
+    /**
+     * Replaces the text of this editor with a copy of the text of another editor.
+     * Copying a buffer shares its structure, so this takes constant time.
+     * The caret is placed at the end of the text and the edit history is cleared.
+     *
+     * @param other the editor to copy the text from
+     */
+    public void copyTextFrom(Editor other) {
+        setBuffer(other.text.copy());
+        caretPosition = text.length();
+    }
+
+    /**
+     * Writes the text of this editor chunk by chunk without building a single string.
+     *
+     * @param writer the writer to write the text to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(Writer writer) throws IOException {
+        Iterator<CharSequence> iterator = text.chunks(0, text.length());
+        while (iterator.hasNext()) {
+            writer.append(iterator.next());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Replaces the buffer of this editor, moving the caret to the beginning and clearing the history.
+     *
+     * @param buffer the new buffer
+     */
+    private void setBuffer(TextBuffer buffer) {
+        int oldLength = text.length();
+        text = buffer;
+        caretPosition = 0;
+        extraCarets = null;
+        getHistory().clear();
+        textChanged(0, oldLength, text.length());
+        dirtyRegions = null;
+    }
+
+    /**
+     * Undoes the most recent edit, restoring the removed characters and the caret position.
+     * Only the characters touched by the edit are processed. Extra carets are removed.
+     *
+     * @return true if an edit was undone, false if there was nothing to undo
+     */
+    public boolean undo() {
+        EditOperation operation = getHistory().undo();
+        if (operation == null) {
+            return false;
+        }
+        extraCarets = null;
+        for (int i = operation.getReplacementCount() - 1; i >= 0; i--) {
+            int offset = operation.getOffset(i);
+            CharSequence removed = operation.getRemoved(i);
+            int insertedEnd = offset + operation.getInserted(i).length();
+            text.replace(offset, insertedEnd, removed);
+            textChanged(offset, insertedEnd, offset + removed.length());
+        }
+        setCaretPosition(operation.getCaretBefore());
+        return true;
+    }
+
+    /**
+     * Redoes the most recently undone edit.
+     *
+     * @return true if an edit was redone, false if there was nothing to redo
+     */
+    public boolean redo() {
+        EditOperation operation = getHistory().redo();
+        if (operation == null) {
+            return false;
+        }
+        extraCarets = null;
+        for (int i = 0; i < operation.getReplacementCount(); i++) {
+            int offset = operation.getOffset(i);
+            CharSequence inserted = operation.getInserted(i);
+            int removedEnd = offset + operation.getRemoved(i).length();
+            text.replace(offset, removedEnd, inserted);
+            textChanged(offset, removedEnd, offset + inserted.length());
+        }
+        setCaretPosition(operation.getCaretAfter());
+        return true;
+    }
+
+    /**
+     * Gets the undo and redo history of this editor, creating it when first needed.
+     * The history is not serialized and is not shared with clones.
+     *
+     * @return the edit history of the editor
+     */
+    public EditHistory getHistory() {
+        if (history == null) {
+            history = new EditHistory();
+        }
+        return history;
+    }
+
+    /**
+     * Gets the region of the text changed since the previous call and forgets it.
+     * Views of the text use this to refresh only the part that actually changed.
+     *
+     * @return the changed region, or null if the text has not changed
+     */
+    public TextChange takePendingChange() {
+        TextChange change = pendingChange;
+        pendingChange = null;
+        return change;
+    }
+
+    /**
+     * Replaces a region of the text and records the change in the pending change and the edit history.
+     * Subclasses use this method instead of modifying the buffer directly.
+     * The caret is kept within the bounds of the new text and extra carets are removed.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @param replacement the characters to put in place of the region
+     */
+    protected void replaceText(int start, int end, CharSequence replacement) {
+        CharSequence removed = text.subSequence(start, end);
+        String inserted = replacement.toString();
+        int caretBefore = caretPosition;
+        extraCarets = null;
+        text.replace(start, end, inserted);
+        textChanged(start, end, start + inserted.length());
+        setCaretPosition(caretPosition);
+        getHistory().record(EditOperation.Kind.OTHER, start, removed, inserted, caretBefore, caretPosition);
+    }
+
+    /**
+     * Records that a region of the text was replaced.
+     * Every method that modifies the buffer must call this method afterwards.
+     *
+     * @param start the offset where the changed region begins
+     * @param oldEnd the offset where the region ended before the change
+     * @param newEnd the offset where the region ends after the change
+     */
+    protected void textChanged(int start, int oldEnd, int newEnd) {
+        TextChange change = new TextChange(start, oldEnd, newEnd);
+        pendingChange = pendingChange == null ? change : pendingChange.merge(change);
+
+        if (changeLog == null) {
+            changeLog = new ArrayDeque<>();
+            changeLogStart = version;
+        }
+        changeLog.addLast(change);
+        if (dirtyRegions != null && !applyingTransform) {
+            dirtyRegions.markChanged(start, oldEnd, newEnd);
+        }
+        if (changeLog.size() > MAX_LOGGED_CHANGES) {
+            changeLog.removeFirst();
+            changeLogStart++;
+        }
+        version++;
+    }
+
+    /**
+     * Transforms the text content according to the specific editor implementation
+     * by applying the edits computed by {@link #transformEdits(TextSnapshot)} as one batch.
+     * Only the words changed since the previous transform are looked at.
+     */
+    public void transform() {
+        TextSnapshot snapshot = snapshot();
+        applyTransform(transformEdits(snapshot), snapshot);
+    }
+
+    /**
+     * Transforms the text like {@link #transform()}, but computes the edits on the specified pool.
+     * The result is exactly the same as that of the sequential transform.
+     *
+     * @param pool the pool to run the transform on
+     */
+    public void transform(ForkJoinPool pool) {
+        TextSnapshot snapshot = snapshot();
+        applyTransform(transformEdits(snapshot, pool), snapshot);
+    }
+
+    /**
+     * Computes the edits that transform the specified text according to the specific
+     * editor implementation, without changing the editor.
+     * Only the words within {@link TextSnapshot#getTransformRanges()} are looked at. The method only
+     * reads the text and the settings of the editor, so it can run on a background thread
+     * while the editor is being edited.
+     *
+     * @param text the snapshot of the text to transform
+     * @return the edits, with offsets in the snapshot
+     */
+    public EditBatch transformEdits(TextSnapshot text) {
+        EditBatch edits = new EditBatch();
+        int[] ranges = text.getTransformRanges();
+        for (int i = 0; i < ranges.length; i += 2) {
+            transformRange(text, ranges[i], ranges[i + 1], edits);
+        }
+        return edits;
+    }
+
+    /**
+     * Computes the edits that transform the specified text on a fork-join pool.
+     * The text is split at whitespace into chunks that are transformed in parallel, and their
+     * edits are joined in order, so the result is exactly the same as that of
+     * {@link #transformEdits(TextSnapshot)}.
+     *
+     * @param text the snapshot of the text to transform
+     * @param pool the pool to run the chunks on
+     * @return the edits, with offsets in the snapshot
+     */
+    public EditBatch transformEdits(TextSnapshot text, ForkJoinPool pool) {
+        return pool.invoke(new TransformTask<>(new TransformTask.RangeTransform<EditBatch>() {
+            @Override
+            public EditBatch createResult() {
+                return new EditBatch();
+            }
+
+            @Override
+            public void transformRange(TextSnapshot text, int start, int end, EditBatch edits) {
+                Editor.this.transformRange(text, start, end, edits);
+            }
+
+            @Override
+            public EditBatch join(EditBatch left, EditBatch right) {
+                return left.addAll(right);
+            }
+        }, text, text.getTransformRanges()));
+    }
+
+    /**
+     * Computes the edits that transform the words within a range of the text.
+     * The range starts and ends between words, so ranges can be transformed independently
+     * and in parallel. Implementations must only read the text and the settings of the editor.
+     *
+     * @param text the snapshot of the text to transform
+     * @param start the beginning offset of the range, inclusive
+     * @param end the ending offset of the range, exclusive
+     * @param edits the batch to add the edits to, in order of their offsets
+     */
+    protected abstract void transformRange(TextSnapshot text, int start, int end, EditBatch edits);
+
+    /**
+     * Checks whether the text can be cut at the specified offset without changing the result
+     * of the transform, so the parts on either side can be transformed separately.
+     * By default the text can be cut at any whitespace character, which never splits a word.
+     * The text must hold the word following the offset in full.
+     *
+     * @param text the text to cut
+     * @param offset the offset of the character where the text would be cut
+     * @return true if the text can be cut at the offset, false otherwise
+     */
+    protected boolean isTransformBoundary(CharSequence text, int offset) {
+        return Character.isWhitespace(text.charAt(offset));
+    }
+
+    /**
+     * Finds the last offset where a text starting between words can be cut, as checked by
+     * {@link #isTransformBoundary(CharSequence, int)}, so its beginning can be transformed on its own.
+     * The text must end with a complete word.
+     *
+     * @param text the text to cut
+     * @return the offset of the last cut, or 0 if there is none after the first character
+     */
+    protected int lastTransformBoundary(CharSequence text) {
+        for (int i = text.length() - 1; i > 0; i--) {
+            if (isTransformBoundary(text, i)) {
+                return i;
+            }
+        }
+        return 0;
+    }
 
     /**
      * Returns a string representation of the editor content.
@@ -180,7 +1037,9 @@ public abstract class Editor
     }
 
     /**
-     * Creates and returns a clone of this editor.
+     * Creates and returns a clone of this editor in constant time.
+     * The clone shares the text buffer structure with this editor; characters are only
+     * copied when one of the editors changes them. The clone starts with an empty edit history.
      *
      * @return a clone of this editor
      * @throws CloneNotSupportedException if cloning is not supported
@@ -188,7 +1047,10 @@ public abstract class Editor
     @Override
     public Object clone() throws CloneNotSupportedException {
         Editor clone = (Editor) super.clone();
-        clone.text = new StringBuilder(this.text.toString());
+        clone.text = this.text.copy();
+        clone.history = null;
+        clone.changeLog = null;
+        clone.dirtyRegions = dirtyRegions == null ? null : dirtyRegions.copy();
         return clone;
     }
 }
@@ -0,0 +1,215 @@
+package main.java.text_editor.editors;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The MisspellingSpans class holds the spans of misspelled words found by a {@link SpellCheckEditor}.
+ * Spans are kept beside the text instead of in it, as sorted and disjoint pairs of offsets in two
+ * primitive arrays, so checking never changes the text, the caret or the edit history.
+ *
+ * <p>The spans follow every edit of the text: spans after an edit are shifted, and spans touching
+ * it are dropped until the changed words are checked again.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class MisspellingSpans {
+
+    /** Number of spans */
+    private int count;
+
+    /** Beginning offset of each span, inclusive */
+    private int[] starts;
+
+    /** Ending offset of each span, exclusive */
+    private int[] ends;
+
+    /**
+     * Constructs an empty set of spans.
+     */
+    MisspellingSpans() {
+        starts = new int[8];
+        ends = new int[8];
+    }
+
+    /**
+     * Gets the number of spans.
+     *
+     * @return the number of misspelled words
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the beginning offset of a span.
+     *
+     * @param index the index of the span
+     * @return the offset of the first character of the misspelled word
+     * @throws IndexOutOfBoundsException if there is no such span
+     */
+    public int getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * Gets the ending offset of a span.
+     *
+     * @param index the index of the span
+     * @return the offset right after the last character of the misspelled word
+     * @throws IndexOutOfBoundsException if there is no such span
+     */
+    public int getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * Finds the first span ending after the specified offset, which is the span containing
+     * the offset if there is one. Spans from the returned index on can be walked to find
+     * all misspellings in a part of the text.
+     *
+     * @param offset the offset in the text
+     * @return the index of the first span ending after the offset, or {@link #size()} if there is none
+     */
+    public int indexAfter(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a span after the existing ones.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     */
+    void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Adds all spans of another set after the spans of this set.
+     *
+     * @param other the spans that follow the spans of this set
+     * @return this set
+     */
+    MisspellingSpans addAll(MisspellingSpans other) {
+        for (int i = 0; i < other.count; i++) {
+            add(other.starts[i], other.ends[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Moves the spans along with a change of the text. Spans after the change are shifted
+     * and spans touching it are dropped.
+     *
+     * @param start the offset where the changed region begins
+     * @param oldEnd the offset where the region ended before the change
+     * @param newEnd the offset where the region ends after the change
+     */
+    void textChanged(int start, int oldEnd, int newEnd) {
+        int shift = newEnd - oldEnd;
+        int first = indexAfter(start - 1);
+        int kept = first;
+        for (int i = first; i < count; i++) {
+            if (starts[i] > oldEnd) {
+                starts[kept] = starts[i] + shift;
+                ends[kept] = ends[i] + shift;
+                kept++;
+            }
+        }
+        count = kept;
+    }
+
+    /**
+     * Moves spans found on a snapshot past the changes made since the snapshot was taken.
+     *
+     * @param changes the changes made since the spans were found, in the order they were made
+     * @return this set
+     */
+    MisspellingSpans rebase(Collection<TextChange> changes) {
+        for (TextChange change : changes) {
+            textChanged(change.getStart(), change.getOldEnd(), change.getNewEnd());
+        }
+        return this;
+    }
+
+    /**
+     * Replaces the spans within the specified regions with newly found spans.
+     *
+     * @param regions sorted, disjoint regions as pairs of beginning and ending offsets
+     * @param found the spans found within the regions, sorted
+     */
+    void replace(int[] regions, MisspellingSpans found) {
+        int[] newStarts = new int[Math.max(count + found.count, 8)];
+        int[] newEnds = new int[newStarts.length];
+        int newCount = 0;
+
+        int region = 0;
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            while (region < regions.length && regions[region + 1] <= starts[i]) {
+                region += 2;
+            }
+            if (region < regions.length && regions[region] < ends[i]) {
+                continue;
+            }
+            while (next < found.count && found.starts[next] < starts[i]) {
+                newStarts[newCount] = found.starts[next];
+                newEnds[newCount++] = found.ends[next++];
+            }
+            newStarts[newCount] = starts[i];
+            newEnds[newCount++] = ends[i];
+        }
+        while (next < found.count) {
+            newStarts[newCount] = found.starts[next];
+            newEnds[newCount++] = found.ends[next++];
+        }
+
+        starts = newStarts;
+        ends = newEnds;
+        count = newCount;
+    }
+
+    /**
+     * Creates an independent copy of these spans.
+     *
+     * @return a copy of the spans
+     */
+    MisspellingSpans copy() {
+        MisspellingSpans copy = new MisspellingSpans();
+        copy.starts = Arrays.copyOf(starts, Math.max(count, 8));
+        copy.ends = Arrays.copyOf(ends, Math.max(count, 8));
+        copy.count = count;
+        return copy;
+    }
+
+    /**
+     * Checks that a span index is valid.
+     *
+     * @param index the index to check
+     * @throws IndexOutOfBoundsException if there is no such span
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + count);
+        }
+    }
+}
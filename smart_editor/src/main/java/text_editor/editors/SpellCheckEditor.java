@@ -1,15 +1,27 @@
 package main.java.text_editor.editors;
 
+import main.java.text_editor.dictionary.SpellDictionary;
 import main.java.text_editor.interfaces.Transformable;
+import main.java.text_editor.search.CompiledDictionary;
+import main.java.text_editor.search.WordLookup;
+import main.java.text_editor.search.WordSet;
+import main.java.text_editor.search.WordTokenizer;
+import main.java.text_editor.prediction.NGramModel;
+import main.java.text_editor.prediction.SpellingCorrector;
 import main.java.text_editor.prediction.WordPredictor;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The SpellCheckEditor extends the base Editor class to provide spell checking capabilities.
- * It maintains a dictionary of known words and can transform the text to highlight
- * misspelled words by surrounding them with tilde (~) characters.
+ * It maintains a dictionary of known words, and transforming the text finds the misspelled words
+ * and keeps them as {@link MisspellingSpans} beside the text, which itself is left untouched.
+ * A copy of the text with misspelled words surrounded by tilde (~) characters can still be
+ * produced through {@link #transformEdits(TextSnapshot)}.
  *
  * <p>This class also provides word prediction functionality based on the current
  * word being typed and the available dictionary.</p>
@@ -20,11 +32,46 @@ public class SpellCheckEditor
 		extends Editor
 		implements Transformable, Cloneable, Serializable {
 
-	/** List of words used for spell checking */
+	/** List of words used for spell checking, or null until needed if a shared dictionary is used */
 	private ArrayList<String> dictionary;
 
-	/** Word predictor used for suggesting words as the user types */
-	private WordPredictor predictor;
+	/** The shared dictionary in use until the words are changed, or null if the list is used */
+	private transient volatile SpellDictionary sharedDictionary;
+
+	/**
+	 * Number of times the dictionary was set or changed, guarded by this editor. A predictor or corrector
+	 * created on a background thread is only kept if the dictionary did not change meanwhile.
+	 */
+	private transient long dictionaryVersion;
+
+	/** Whether the dictionary may also be used by a clone of this editor */
+	private transient boolean dictionaryShared;
+
+	/**
+	 * Set of the dictionary words used for lookups, built when first needed. It is replaced
+	 * instead of being modified, so background transforms always see a consistent set.
+	 */
+	private transient volatile WordLookup dictionaryIndex;
+
+	/**
+	 * Word predictor over the list of words of this editor used for suggesting words as the user types,
+	 * created when first needed. A shared dictionary provides its own predictor instead. It is not saved
+	 * with the editor, as it may be learning from typing while the editor is written, and it is rebuilt from
+	 * the words after loading.
+	 */
+	private transient volatile WordPredictor predictor;
+
+	/**
+	 * Spelling corrector over the list of words of this editor used for suggesting corrections of misspelled
+	 * words, created when first needed. A shared dictionary provides its own corrector instead.
+	 */
+	private transient volatile SpellingCorrector corrector;
+
+	/** Model predicting the next word from the words typed before it, or null if none was trained */
+	private transient volatile NGramModel nextWordModel;
+
+	/** The spans of the misspelled words found so far, created when first needed */
+	private transient MisspellingSpans misspellings;
 
 	/**
 	 * Constructs a SpellCheckEditor with the specified dictionary.
@@ -42,6 +89,7 @@ public class SpellCheckEditor
 	public SpellCheckEditor() {
 		super();
 		dictionary = new ArrayList<String>();
+		dictionaryIndex = new WordSet();
 	}
 
 	/**
@@ -50,17 +98,65 @@ public class SpellCheckEditor
 	 *
 	 * @param words the list of words to use as the dictionary
 	 */
-	public void setDictionary(ArrayList<String> words) {
+	public synchronized void setDictionary(ArrayList<String> words) {
+		dictionaryVersion++;
+		sharedDictionary = null;
 		dictionary = words;
+		dictionaryShared = false;
+		dictionaryIndex = new WordSet(words);
 		predictor = new WordPredictor(dictionary);
+		corrector = null;
+		markAllDirty();
+	}
+
+	/**
+	 * Sets a compiled dictionary for this spell checker. Words are looked up in the mapped file,
+	 * so no object is created per word until the word list or the predictions are needed.
+	 *
+	 * @param compiledDictionary the dictionary opened with {@link CompiledDictionary#open(java.nio.file.Path)}
+	 */
+	public void setDictionary(CompiledDictionary compiledDictionary) {
+		setDictionary(SpellDictionary.of(compiledDictionary));
+	}
+
+	/**
+	 * Sets a shared dictionary for this spell checker. Its lookup set and predictor are used as they are,
+	 * so setting a dictionary that is already loaded costs no I/O and no indexing. The words are only
+	 * copied into a list of this editor when they are changed or read through {@link #getDictionary()}.
+	 *
+	 * @param sharedDictionary the immutable dictionary to use
+	 */
+	public synchronized void setDictionary(SpellDictionary sharedDictionary) {
+		dictionaryVersion++;
+		this.sharedDictionary = sharedDictionary;
+		dictionary = null;
+		dictionaryShared = false;
+		dictionaryIndex = sharedDictionary.getLookup();
+		predictor = null;
+		corrector = null;
+		markAllDirty();
+	}
+
+	/**
+	 * Gets the shared dictionary used by this spell checker.
+	 *
+	 * @return the shared dictionary, or null if this editor uses its own list of words
+	 */
+	public SpellDictionary getSharedDictionary() {
+		return sharedDictionary;
 	}
 
 	/**
 	 * Gets the current dictionary used for spell checking.
+	 * The list may be shared with clones of this editor, so it should only be changed through
+	 * {@link #addWordToDictionary(String)} and {@link #removeWordFromDictionary(String)}.
 	 *
 	 * @return the list of words in the dictionary
 	 */
 	public ArrayList<String> getDictionary() {
+		if (dictionary == null) {
+			dictionary = new ArrayList<String>(sharedDictionary.getWords());
+		}
 		return dictionary;
 	}
 
@@ -69,8 +165,14 @@ public class SpellCheckEditor
 	 *
 	 * @param word the word to add to the dictionary
 	 */
-	public void addWordToDictionary(String word) {
+	public synchronized void addWordToDictionary(String word) {
+		prepareDictionaryWrite();
 		dictionary.add(word);
+		WordSet index = copyDictionaryIndex();
+		index.add(word);
+		dictionaryIndex = index;
+		corrector = null;
+		markAllDirty();
 	}
 
 	/**
@@ -78,68 +180,244 @@ public class SpellCheckEditor
 	 *
 	 * @param word the word to remove from the dictionary
 	 */
-	public void removeWordFromDictionary(String word) {
+	public synchronized void removeWordFromDictionary(String word) {
 		if (checkWord(word)) {
-			dictionary.remove(word);
+			prepareDictionaryWrite();
+			if (dictionary.remove(word) && !dictionary.contains(word)) {
+				WordSet index = copyDictionaryIndex();
+				index.remove(word);
+				dictionaryIndex = index;
+			}
+			corrector = null;
+			markAllDirty();
+		}
+	}
+
+	/**
+	 * Gives this editor its own copy of the dictionary if the current one may be shared with a clone
+	 * or with other editors, turning a shared dictionary into a list of words.
+	 */
+	private void prepareDictionaryWrite() {
+		dictionaryVersion++;
+		getDictionary();
+		sharedDictionary = null;
+		if (dictionaryShared) {
+			dictionary = new ArrayList<String>(dictionary);
+			dictionaryShared = false;
 		}
 	}
 
 	/**
 	 * Checks if a word exists in the dictionary.
-	 * The check is case-insensitive.
+	 * The check is case-insensitive, takes constant expected time and does not copy the word,
+	 * so it can be given a slice of the text directly.
 	 *
 	 * @param word the word to check
 	 * @return true if the word exists in the dictionary, false otherwise
 	 */
-	public boolean checkWord(String word) {
-		return dictionary.contains(word.toLowerCase());
+	public boolean checkWord(CharSequence word) {
+		return getDictionaryIndex().contains(word);
+	}
+
+	/**
+	 * Gets the set of the dictionary words, building it if this editor was deserialized.
+	 *
+	 * @return the set of dictionary words
+	 */
+	private WordLookup getDictionaryIndex() {
+		WordLookup index = dictionaryIndex;
+		if (index == null) {
+			index = new WordSet(dictionary);
+			dictionaryIndex = index;
+		}
+		return index;
 	}
 
 	/**
-	 * Transforms the text by marking misspelled words.
+	 * Creates a modifiable copy of the set of the dictionary words, which replaces the set of a shared
+	 * dictionary, or a compiled dictionary, once the dictionary is changed.
+	 *
+	 * @return a hash set of the dictionary words
+	 */
+	private WordSet copyDictionaryIndex() {
+		WordLookup index = getDictionaryIndex();
+		return index instanceof WordSet ? ((WordSet) index).copy() : new WordSet(dictionary);
+	}
+
+	/**
+	 * Computes the edits that mark misspelled words in a range of the text.
 	 * Words not found in the dictionary are surrounded by tilde (~) characters.
-	 * Punctuation is preserved during the transformation.
+	 * Only the words changed since the previous check are looked at, and words already marked are skipped.
+	 * Punctuation and whitespace are preserved, and only misspelled words are edited.
+	 *
+	 * @param text the snapshot of the text to check
+	 * @param start the beginning offset of the range, inclusive
+	 * @param end the ending offset of the range, exclusive
+	 * @param edits the batch to add the edits marking the misspelled words to
+	 */
+	@Override
+	protected void transformRange(TextSnapshot text, int start, int end, EditBatch edits) {
+		WordTokenizer words = new WordTokenizer(text.chunks(start, end), start);
+		while (words.next()) {
+			if (words.hasCleanWord() && !isMarked(text, words) && !checkWord(words.getCleanWord())) {
+				CharSequence cleanWord = words.getCleanWord();
+				edits.replace(words.getCleanStart(), words.getCleanEnd(),
+						new StringBuilder(cleanWord.length() + 2).append('~').append(cleanWord).append('~'));
+			}
+		}
+	}
+
+	/**
+	 * Checks the words changed since the previous check and updates the misspellings.
+	 * The text is not changed.
 	 */
+	@Override
 	public void transform() {
-		StringBuilder checkedString = new StringBuilder();
-		String[] words = text.toString().split("\\s+");
+		TextSnapshot snapshot = snapshot();
+		applyMisspellings(findMisspellings(snapshot), snapshot);
+	}
 
-		for (int i = 0; i < words.length; i++) {
-			String word = words[i];
+	/**
+	 * Checks the words changed since the previous check on the specified pool and updates the misspellings.
+	 * The result is exactly the same as that of {@link #transform()}.
+	 *
+	 * @param pool the pool to run the check on
+	 */
+	@Override
+	public void transform(ForkJoinPool pool) {
+		TextSnapshot snapshot = snapshot();
+		applyMisspellings(findMisspellings(snapshot, pool), snapshot);
+	}
 
-			// Extract punctuation from the beginning and end
-			String leadingPunct = "";
-			String trailingPunct = "";
-			String cleanWord = word;
+	/**
+	 * Finds the misspelled words within the transform ranges of a snapshot without changing the editor,
+	 * so the method can run on a background thread while the editor is being edited.
+	 *
+	 * @param text the snapshot of the text to check
+	 * @return the spans of the misspelled words, with offsets in the snapshot
+	 */
+	public MisspellingSpans findMisspellings(TextSnapshot text) {
+		MisspellingSpans found = new MisspellingSpans();
+		int[] ranges = text.getTransformRanges();
+		for (int i = 0; i < ranges.length; i += 2) {
+			findMisspellings(text, ranges[i], ranges[i + 1], found);
+		}
+		return found;
+	}
 
-			// Extract leading punctuation
-			while (!cleanWord.isEmpty() && !Character.isLetterOrDigit(cleanWord.charAt(0))) {
-				leadingPunct += cleanWord.charAt(0);
-				cleanWord = cleanWord.substring(1);
+	/**
+	 * Finds the misspelled words within the transform ranges of a snapshot on a fork-join pool.
+	 * The result is exactly the same as that of {@link #findMisspellings(TextSnapshot)}.
+	 *
+	 * @param text the snapshot of the text to check
+	 * @param pool the pool to run the check on
+	 * @return the spans of the misspelled words, with offsets in the snapshot
+	 */
+	public MisspellingSpans findMisspellings(TextSnapshot text, ForkJoinPool pool) {
+		return pool.invoke(new TransformTask<>(new TransformTask.RangeTransform<MisspellingSpans>() {
+			@Override
+			public MisspellingSpans createResult() {
+				return new MisspellingSpans();
 			}
 
-			// Extract trailing punctuation
-			while (!cleanWord.isEmpty() && !Character.isLetterOrDigit(cleanWord.charAt(cleanWord.length() - 1))) {
-				trailingPunct = cleanWord.charAt(cleanWord.length() - 1) + trailingPunct;
-				cleanWord = cleanWord.substring(0, cleanWord.length() - 1);
+			@Override
+			public void transformRange(TextSnapshot text, int start, int end, MisspellingSpans found) {
+				findMisspellings(text, start, end, found);
 			}
 
-			if (!cleanWord.isEmpty()) {
-				if (checkWord(cleanWord)) {
-					checkedString.append(leadingPunct).append(cleanWord).append(trailingPunct);
-				} else {
-					checkedString.append(leadingPunct).append("~").append(cleanWord).append("~").append(trailingPunct);
-				}
-			} else {
-				checkedString.append(word);
+			@Override
+			public MisspellingSpans join(MisspellingSpans left, MisspellingSpans right) {
+				return left.addAll(right);
 			}
+		}, text, text.getTransformRanges()));
+	}
+
+	/**
+	 * Replaces the misspellings within the transform ranges of a snapshot with the ones found on it.
+	 * Spans touching a region that changed since the snapshot was taken are dropped, and those
+	 * regions are checked again by the next transform.
+	 *
+	 * @param found the spans found by {@link #findMisspellings(TextSnapshot)}
+	 * @param snapshot the snapshot the spans were found on
+	 * @return true if the spans were applied, false if the snapshot is too old to rebase onto the current text
+	 * @throws IllegalArgumentException if the snapshot was taken from another editor
+	 */
+	public boolean applyMisspellings(MisspellingSpans found, TextSnapshot snapshot) {
+		List<TextChange> changes = snapshot.getSource() == this ? changesSince(snapshot) : null;
+		if (!applyTransform(new EditBatch(), snapshot)) {
+			return false;
+		}
 
-			if (i < words.length - 1) {
-				checkedString.append(" ");
+		// The checked ranges grow over every change touching them, like dirty regions do
+		DirtyRegions checked = new DirtyRegions();
+		int[] ranges = snapshot.getTransformRanges();
+		for (int i = 0; i < ranges.length; i += 2) {
+			checked.markChanged(ranges[i], ranges[i + 1], ranges[i + 1]);
+		}
+		for (TextChange change : changes) {
+			checked.markChanged(change.getStart(), change.getOldEnd(), change.getNewEnd());
+		}
+		getMisspellings().replace(checked.toArray(), found.copy().rebase(changes));
+		return true;
+	}
+
+	/**
+	 * Gets the spans of the misspelled words found so far.
+	 * The spans follow the edits of the text, and words changed since the last check have none
+	 * until they are checked again.
+	 *
+	 * @return the misspellings, which must not be modified
+	 */
+	public MisspellingSpans getMisspellings() {
+		if (misspellings == null) {
+			misspellings = new MisspellingSpans();
+		}
+		return misspellings;
+	}
+
+	/**
+	 * Records a change of the text and moves the misspellings along with it.
+	 *
+	 * @param start the offset where the changed region begins
+	 * @param oldEnd the offset where the region ended before the change
+	 * @param newEnd the offset where the region ends after the change
+	 */
+	@Override
+	protected void textChanged(int start, int oldEnd, int newEnd) {
+		super.textChanged(start, oldEnd, newEnd);
+		if (misspellings != null) {
+			misspellings.textChanged(start, oldEnd, newEnd);
+		}
+	}
+
+	/**
+	 * Adds the spans of the misspelled words within a range of the text.
+	 *
+	 * @param text the snapshot of the text to check
+	 * @param start the beginning offset of the range, inclusive
+	 * @param end the ending offset of the range, exclusive
+	 * @param found the spans to add to
+	 */
+	private void findMisspellings(TextSnapshot text, int start, int end, MisspellingSpans found) {
+		WordTokenizer words = new WordTokenizer(text.chunks(start, end), start);
+		while (words.next()) {
+			if (words.hasCleanWord() && !checkWord(words.getCleanWord())) {
+				found.add(words.getCleanStart(), words.getCleanEnd());
 			}
 		}
+	}
 
-		text = checkedString;
+	/**
+	 * Checks whether the clean part of the current word is already surrounded by tilde (~) characters,
+	 * so checking a region again does not mark its misspelled words twice.
+	 *
+	 * @param text the text being checked
+	 * @param words the tokenizer positioned on the word
+	 * @return true if the word is already marked, false otherwise
+	 */
+	private static boolean isMarked(CharSequence text, WordTokenizer words) {
+		return words.getCleanStart() > words.getWordStart() && text.charAt(words.getCleanStart() - 1) == '~'
+				&& words.getCleanEnd() < words.getWordEnd() && text.charAt(words.getCleanEnd()) == '~';
 	}
 
 	/**
@@ -149,13 +427,256 @@ public class SpellCheckEditor
 	 * @return a list of predicted words that start with the current word prefix
 	 */
 	public List<String> getPredictions(int maxSuggestions) {
-		String currentWord = getCurrentWord();
-		if (predictor != null && !currentWord.isEmpty()) {
-			return predictor.predictWords(currentWord, maxSuggestions);
+		return getPredictions(getCurrentWord(), maxSuggestions);
+	}
+
+	/**
+	 * Gets a list of word predictions that start with a prefix.
+	 *
+	 * @param prefix the beginning of the word
+	 * @param maxSuggestions the maximum number of suggestions to return
+	 * @return a list of predicted words that start with the prefix
+	 */
+	private List<String> getPredictions(String prefix, int maxSuggestions) {
+		if (!prefix.isEmpty()) {
+			return getPredictor().predictWords(prefix, maxSuggestions);
 		}
 		return new ArrayList<>();
 	}
 
+	/**
+	 * Gets the word predictor, creating it when first needed. It may be created on a background thread
+	 * while the event dispatch thread changes the dictionary, in which case it is used for this call only.
+	 *
+	 * @return the predictor of the shared dictionary, or one over the words of this editor
+	 */
+	private WordPredictor getPredictor() {
+		SpellDictionary shared = sharedDictionary;
+		if (shared != null) {
+			return shared.getPredictor();
+		}
+		WordPredictor result = predictor;
+		if (result == null) {
+			long version;
+			List<String> words;
+			synchronized (this) {
+				version = dictionaryVersion;
+				words = new ArrayList<>(getDictionary());
+			}
+			result = new WordPredictor(words);
+			synchronized (this) {
+				if (version == dictionaryVersion) {
+					predictor = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a single character at the current caret position. A character ending a word commits the word
+	 * typed before it, whose use is learned by the predictor so that it is predicted earlier next time.
+	 *
+	 * @param character the character to add
+	 */
+	@Override
+	public void addText(char character) {
+		if (!Character.isLetterOrDigit(character) && caretPosition > 0
+				&& Character.isLetterOrDigit(text.charAt(caretPosition - 1))) {
+			int wordStart = caretPosition - 1;
+			while (wordStart > 0 && Character.isLetterOrDigit(text.charAt(wordStart - 1))) {
+				wordStart--;
+			}
+			SpellDictionary shared = sharedDictionary;
+			WordPredictor current = shared != null ? shared.getCreatedPredictor() : predictor;
+			if (current != null) {
+				// The predictor is not created just to learn, so typing never waits for the dictionary
+				current.learnWord(text, wordStart, caretPosition);
+			}
+		}
+		super.addText(character);
+	}
+
+	/**
+	 * Gets the dictionary words closest to a misspelled word, nearest first.
+	 *
+	 * @param word the misspelled word
+	 * @param maxSuggestions the maximum number of corrections to return
+	 * @return the dictionary words within an edit distance of {@value SpellingCorrector#MAX_DISTANCE} of the word
+	 */
+	public List<String> getCorrections(CharSequence word, int maxSuggestions) {
+		SpellDictionary shared = sharedDictionary;
+		if (shared != null) {
+			return shared.getCorrector().suggest(word, maxSuggestions);
+		}
+		SpellingCorrector result = corrector;
+		if (result == null) {
+			long version;
+			List<String> words;
+			synchronized (this) {
+				version = dictionaryVersion;
+				words = new ArrayList<>(getDictionary());
+			}
+			result = new SpellingCorrector(words);
+			synchronized (this) {
+				if (version == dictionaryVersion) {
+					corrector = result;
+				}
+			}
+		}
+		return result.suggest(word, maxSuggestions);
+	}
+
+	/**
+	 * Sets the model predicting the next word from the words typed before it.
+	 *
+	 * @param nextWordModel the trained model, or null to only complete the current word
+	 */
+	public void setNextWordModel(NGramModel nextWordModel) {
+		this.nextWordModel = nextWordModel;
+	}
+
+	/**
+	 * Gets the model predicting the next word from the words typed before it.
+	 *
+	 * @return the trained model, or null if none was set
+	 */
+	public NGramModel getNextWordModel() {
+		return nextWordModel;
+	}
+
+	/**
+	 * Gets the words most likely to follow the one or two words before the caret, starting with
+	 * the current word being typed. The words are split as the model was trained, so punctuation
+	 * between them breaks the sequence and leaves nothing to predict from.
+	 *
+	 * @param maxSuggestions the maximum number of predictions to return
+	 * @return the next-word predictions, most likely first, or an empty list without a model
+	 */
+	public List<String> getNextWordPredictions(int maxSuggestions) {
+		return getNextWordPredictions(text, caretPosition, maxSuggestions);
+	}
+
+	/**
+	 * Gets the words most likely to follow the words before a position of a text.
+	 *
+	 * @param text the text
+	 * @param caretPosition the position in the text
+	 * @param maxSuggestions the maximum number of predictions to return
+	 * @return the next-word predictions, most likely first, or an empty list without a model
+	 */
+	private List<String> getNextWordPredictions(CharSequence text, int caretPosition, int maxSuggestions) {
+		NGramModel model = nextWordModel;
+		int wordStart = caretPosition;
+		while (wordStart > 0 && Character.isLetterOrDigit(text.charAt(wordStart - 1))) {
+			wordStart--;
+		}
+		if (model == null || wordStart == 0 || !Character.isWhitespace(text.charAt(wordStart - 1))) {
+			return new ArrayList<>();
+		}
+
+		int previousEnd = skipWhitespaceBackward(text, wordStart);
+		if (previousEnd == 0 || !Character.isLetterOrDigit(text.charAt(previousEnd - 1))) {
+			return new ArrayList<>();
+		}
+		int previousStart = previousEnd;
+		while (previousStart > 0 && !Character.isWhitespace(text.charAt(previousStart - 1))) {
+			previousStart--;
+		}
+		int previousCleanStart = skipPunctuation(text, previousStart, previousEnd);
+
+		CharSequence beforePrevious = null;
+		int beforeEnd = skipWhitespaceBackward(text, previousStart);
+		if (previousCleanStart == previousStart && beforeEnd > 0
+				&& Character.isLetterOrDigit(text.charAt(beforeEnd - 1))) {
+			int beforeStart = beforeEnd;
+			while (beforeStart > 0 && !Character.isWhitespace(text.charAt(beforeStart - 1))) {
+				beforeStart--;
+			}
+			beforePrevious = text.subSequence(skipPunctuation(text, beforeStart, beforeEnd), beforeEnd);
+		}
+		return model.predict(beforePrevious, text.subSequence(previousCleanStart, previousEnd),
+				text.subSequence(wordStart, caretPosition), maxSuggestions);
+	}
+
+	/**
+	 * Finds where the whitespace before an offset begins.
+	 *
+	 * @param text the text
+	 * @param offset the offset to start from
+	 * @return the offset after the last character before it that is not whitespace, or 0 if there is none
+	 */
+	private static int skipWhitespaceBackward(CharSequence text, int offset) {
+		while (offset > 0 && Character.isWhitespace(text.charAt(offset - 1))) {
+			offset--;
+		}
+		return offset;
+	}
+
+	/**
+	 * Finds the first letter or digit of a word, skipping its leading punctuation.
+	 *
+	 * @param text the text
+	 * @param start the offset of the word
+	 * @param end the offset after the word, which must contain a letter or digit
+	 * @return the offset of the first letter or digit
+	 */
+	private static int skipPunctuation(CharSequence text, int start, int end) {
+		while (start < end && !Character.isLetterOrDigit(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Gets suggestions for the current word being typed: the words likely to follow the words before it,
+	 * the dictionary words it is a prefix of and, if the word is not in the dictionary, the closest corrections.
+	 * Right after a space only the next-word predictions are given.
+	 *
+	 * @param maxSuggestions the maximum number of suggestions to return
+	 * @return the next-word predictions, the completions and the corrections in turn, without duplicates
+	 */
+	public List<String> getSuggestions(int maxSuggestions) {
+		return getSuggestions(text, caretPosition, maxSuggestions);
+	}
+
+	/**
+	 * Gets suggestions for the word being typed at a position of a text, as {@link #getSuggestions(int)} does
+	 * at the caret. Given a {@link TextSnapshot}, this can run on a background thread while the editor is
+	 * changed, and the predictor and corrector are then created on that thread when first needed. If the thread
+	 * is interrupted, the suggestions found so far are returned without looking further.
+	 *
+	 * @param text the text, which must not change during the call
+	 * @param caretPosition the position of the caret in the text
+	 * @param maxSuggestions the maximum number of suggestions to return
+	 * @return the next-word predictions, the completions and the corrections in turn, without duplicates
+	 */
+	public List<String> getSuggestions(CharSequence text, int caretPosition, int maxSuggestions) {
+		String currentWord = getCurrentWord(text, caretPosition);
+		Set<String> suggestions = new LinkedHashSet<>(getNextWordPredictions(text, caretPosition, maxSuggestions));
+		if (Thread.currentThread().isInterrupted()) {
+			return new ArrayList<>(suggestions);
+		}
+		for (String prediction : getPredictions(currentWord, maxSuggestions)) {
+			if (suggestions.size() == maxSuggestions) {
+				break;
+			}
+			suggestions.add(prediction);
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			return new ArrayList<>(suggestions);
+		}
+		if (!currentWord.isEmpty() && suggestions.size() < maxSuggestions && !checkWord(currentWord)) {
+			for (String correction : getCorrections(currentWord, maxSuggestions)) {
+				if (suggestions.size() == maxSuggestions) {
+					break;
+				}
+				suggestions.add(correction);
+			}
+		}
+		return new ArrayList<>(suggestions);
+	}
+
 	/**
 	 * Gets the current word at the caret position.
 	 * A word is defined as a sequence of letter or digit characters.
@@ -163,32 +684,53 @@ public class SpellCheckEditor
 	 * @return the current word at the caret position, or an empty string if no word is found
 	 */
 	public String getCurrentWord() {
+		return getCurrentWord(text, caretPosition);
+	}
+
+	/**
+	 * Gets the word before a position of a text.
+	 *
+	 * @param text the text
+	 * @param caretPosition the position in the text
+	 * @return the letters and digits before the position, or an empty string if there are none
+	 */
+	private static String getCurrentWord(CharSequence text, int caretPosition) {
 		if (text.length() == 0 || caretPosition == 0) {
 			return "";
 		}
 
-		String textStr = text.toString();
-
 		int wordStart = caretPosition - 1;
-		while (wordStart >= 0 && Character.isLetterOrDigit(textStr.charAt(wordStart))) {
+		while (wordStart >= 0 && Character.isLetterOrDigit(text.charAt(wordStart))) {
 			wordStart--;
 		}
 		wordStart++;
 
 		int wordEnd = caretPosition;
-		while (wordEnd < textStr.length() && Character.isLetterOrDigit(textStr.charAt(wordEnd))) {
+		while (wordEnd < text.length() && Character.isLetterOrDigit(text.charAt(wordEnd))) {
 			wordEnd++;
 		}
 
 		if (wordStart < wordEnd && wordStart < caretPosition) {
-			return textStr.substring(wordStart, Math.min(caretPosition, wordEnd));
+			return text.subSequence(wordStart, Math.min(caretPosition, wordEnd)).toString();
 		}
 
 		return "";
 	}
 
 	/**
-	 * Creates and returns a clone of this SpellCheckEditor.
+	 * Writes this editor with the words of its dictionary, so a shared dictionary is saved as a list.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getDictionary();
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * Creates and returns a clone of this SpellCheckEditor in constant time.
+	 * The clone shares the dictionary with this editor until either of them changes it.
 	 *
 	 * @return a clone of this SpellCheckEditor
 	 * @throws CloneNotSupportedException if cloning is not supported
@@ -196,7 +738,9 @@ public class SpellCheckEditor
 	@Override
 	public Object clone() throws CloneNotSupportedException {
 		SpellCheckEditor clone = (SpellCheckEditor) super.clone();
-		clone.dictionary = new ArrayList<String>(this.dictionary);
+		clone.misspellings = misspellings == null ? null : misspellings.copy();
+		clone.dictionaryShared = true;
+		this.dictionaryShared = true;
 		return clone;
 	}
 }
@@ -0,0 +1,87 @@
+package main.java.text_editor.editors;
+
+/**
+ * The TextChange class describes a region of an editor's text that was replaced.
+ * The characters between {@code start} and {@code oldEnd} of the previous text
+ * became the characters between {@code start} and {@code newEnd} of the current text.
+ *
+ * <p>Instances are immutable. Consecutive changes can be combined with
+ * {@link #merge(TextChange)} into a single change covering both.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class TextChange {
+
+    /** The offset where the changed region begins */
+    private final int start;
+
+    /** The offset where the changed region ended before the change, exclusive */
+    private final int oldEnd;
+
+    /** The offset where the changed region ends after the change, exclusive */
+    private final int newEnd;
+
+    /**
+     * Constructs a change describing a replaced region.
+     *
+     * @param start the offset where the changed region begins
+     * @param oldEnd the offset where the region ended before the change
+     * @param newEnd the offset where the region ends after the change
+     */
+    public TextChange(int start, int oldEnd, int newEnd) {
+        this.start = start;
+        this.oldEnd = oldEnd;
+        this.newEnd = newEnd;
+    }
+
+    /**
+     * Gets the offset where the changed region begins.
+     *
+     * @return the start offset of the change
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the offset where the changed region ended before the change.
+     *
+     * @return the end offset of the region in the previous text
+     */
+    public int getOldEnd() {
+        return oldEnd;
+    }
+
+    /**
+     * Gets the offset where the changed region ends after the change.
+     *
+     * @return the end offset of the region in the current text
+     */
+    public int getNewEnd() {
+        return newEnd;
+    }
+
+    /**
+     * Combines this change with a change that was made after it.
+     * The result describes both changes as a single replaced region of the text
+     * as it was before this change.
+     *
+     * @param next the change made after this one
+     * @return a change covering both changes
+     */
+    public TextChange merge(TextChange next) {
+        int mergedStart = Math.min(start, next.start);
+        int end = Math.max(newEnd, next.oldEnd);
+        return new TextChange(mergedStart, end - (newEnd - oldEnd), end + (next.newEnd - next.oldEnd));
+    }
+
+    /**
+     * Returns a string representation of this change.
+     *
+     * @return the change as a string
+     */
+    @Override
+    public String toString() {
+        return "TextChange[" + start + ", " + oldEnd + " -> " + newEnd + "]";
+    }
+}
@@ -0,0 +1,172 @@
+package main.java.text_editor.editors;
+
+import main.java.text_editor.buffer.TextBuffer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The TextSnapshot class is an immutable view of an editor's text as it was at one version.
+ * Taking a snapshot copies the buffer, which shares its structure with the live text, so it
+ * takes constant time and the snapshot can be read on any thread while editing continues.
+ *
+ * <p>Work done on a snapshot in the background is described as an {@link EditBatch} in offsets
+ * of the snapshot and handed back to {@link Editor#applyEdits(EditBatch, TextSnapshot)},
+ * which moves the edits past the changes made since the snapshot was taken.</p>
+ *
+ * <p>A snapshot also remembers which regions changed since the editor was last transformed,
+ * so transforms can skip the words whose earlier results are still valid.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class TextSnapshot
+        implements CharSequence {
+
+    /** The editor the snapshot was taken from */
+    private final Editor source;
+
+    /** The copy of the text, never modified */
+    private final TextBuffer text;
+
+    /** The version of the editor text the snapshot holds */
+    private final long version;
+
+    /** Regions changed since the editor was last transformed as offset pairs, or null if the whole text is */
+    private final int[] dirtyRegions;
+
+    /** The number of times the whole text of the editor was marked dirty before the snapshot */
+    private final int allDirtyCount;
+
+    /**
+     * Constructs a snapshot. Snapshots are created by {@link Editor#snapshot()}.
+     *
+     * @param source the editor the snapshot was taken from
+     * @param text a copy of the text that is never modified
+     * @param version the version of the editor text
+     * @param dirtyRegions the regions changed since the last transform as offset pairs, or null for the whole text
+     * @param allDirtyCount the number of times the whole text of the editor was marked dirty
+     */
+    TextSnapshot(Editor source, TextBuffer text, long version, int[] dirtyRegions, int allDirtyCount) {
+        this.source = source;
+        this.text = text;
+        this.version = version;
+        this.dirtyRegions = dirtyRegions;
+        this.allDirtyCount = allDirtyCount;
+    }
+
+    /**
+     * Gets the editor the snapshot was taken from.
+     *
+     * @return the source editor
+     */
+    Editor getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the version of the editor text the snapshot holds.
+     *
+     * @return the version of the text
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of times the whole text of the editor was marked dirty before the snapshot.
+     *
+     * @return the count kept by the editor when the snapshot was taken
+     */
+    int getAllDirtyCount() {
+        return allDirtyCount;
+    }
+
+    /**
+     * Gets the ranges of the text a transform has to look at, which are the words touching
+     * a region changed since the editor was last transformed. Each dirty region is widened to
+     * the surrounding whitespace where the editor allows its transform to be cut, so the ranges
+     * always start and end between words.
+     *
+     * @return sorted, disjoint ranges as pairs of beginning and ending offsets
+     */
+    public int[] getTransformRanges() {
+        int length = text.length();
+        if (dirtyRegions == null) {
+            return length == 0 ? new int[0] : new int[] {0, length};
+        }
+
+        int[] ranges = new int[dirtyRegions.length];
+        int count = 0;
+        for (int i = 0; i < dirtyRegions.length; i += 2) {
+            int start = Math.min(dirtyRegions[i], length);
+            int end = Math.min(dirtyRegions[i + 1], length);
+            while (start > 0 && !source.isTransformBoundary(this, start - 1)) {
+                start--;
+            }
+            while (end < length && !source.isTransformBoundary(this, end)) {
+                end++;
+            }
+            if (count > 0 && start <= ranges[count - 1]) {
+                ranges[count - 1] = Math.max(ranges[count - 1], end);
+            } else if (start < end) {
+                ranges[count++] = start;
+                ranges[count++] = end;
+            }
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Gets the number of characters in the snapshot.
+     *
+     * @return the length of the text
+     */
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Gets the character at the specified offset.
+     *
+     * @param index the offset of the character
+     * @return the character at the offset
+     */
+    @Override
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    /**
+     * Gets the characters between the specified offsets.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return the characters in the range
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    /**
+     * Iterates over the characters between the specified offsets in consecutive read-only chunks.
+     *
+     * @param start the beginning offset, inclusive
+     * @param end the ending offset, exclusive
+     * @return an iterator over the chunks covering the range, in order
+     */
+    public Iterator<CharSequence> chunks(int start, int end) {
+        return text.chunks(start, end);
+    }
+
+    /**
+     * Returns the whole text of the snapshot as a string.
+     *
+     * @return the text as a string
+     */
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package main.java.text_editor.editors;
+
+import main.java.text_editor.buffer.RopeBuffer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The TransformPipeline class transforms a text file into another one without loading it into an editor.
+ * The text is read into a fixed buffer, the buffer is cut at its last whitespace where the transform allows it
+ * so no word or phrase is split,
+ * and the editor transform is computed on that chunk. The chunk is then written out with the edits
+ * applied on the fly, and the unread part of the word at the cut is carried over to the next chunk.
+ *
+ * <p>Memory use is bounded by the buffer size, whatever the size of the input. The buffer only grows
+ * when a single word, or a single phrase translated as a whole, does not fit into it. For a {@link SpellCheckEditor} the output is the text with
+ * misspelled words surrounded by tilde (~) characters, and for a {@link TranslateEditor} the translated text.</p>
+ *
+ * <p>The pipeline only reads the settings of the editor, such as its dictionary, and never changes
+ * its text, so several pipelines may share an editor and run on different threads.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class TransformPipeline {
+
+    /** Default number of characters read into the buffer at a time */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** The editor whose transform is applied */
+    private final Editor editor;
+
+    /** Number of characters read into the buffer at a time */
+    private final int bufferSize;
+
+    /**
+     * Constructs a pipeline applying the transform of the specified editor with the default buffer size.
+     *
+     * @param editor the editor whose transform to apply
+     */
+    public TransformPipeline(Editor editor) {
+        this(editor, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a pipeline applying the transform of the specified editor.
+     *
+     * @param editor the editor whose transform to apply
+     * @param bufferSize the number of characters read into the buffer at a time
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public TransformPipeline(Editor editor, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.editor = editor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Transforms a text file into another one through file channels.
+     * The target file is created or overwritten.
+     *
+     * @param source the path of the file to read
+     * @param target the path of the file to write
+     * @param charset the charset of both files
+     * @throws IOException if a file cannot be read or written, or the source is not valid in the charset
+     */
+    public void transform(Path source, Path target, Charset charset) throws IOException {
+        try (Reader reader = Channels.newReader(FileChannel.open(source), charset.newDecoder(), bufferSize);
+             Writer writer = Channels.newWriter(FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), charset.newEncoder(), bufferSize)) {
+            transform(reader, writer);
+        }
+    }
+
+    /**
+     * Transforms the text read from a reader and writes the result to a writer.
+     * Neither of them is closed, but the writer is flushed at the end.
+     *
+     * @param reader the reader to read the text from
+     * @param writer the writer to write the transformed text to
+     * @throws IOException if an I/O error occurs
+     */
+    public void transform(Reader reader, Writer writer) throws IOException {
+        char[] buffer = new char[bufferSize];
+        int length = 0;
+        boolean endOfInput = false;
+
+        while (!endOfInput) {
+            int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                length += read;
+                if (length < buffer.length) {
+                    continue;
+                }
+            }
+
+            int cut = endOfInput ? length : lastBoundary(buffer, length);
+            if (cut <= 0) {
+                // No cut fits, such as when a single word fills the buffer, so it has to grow to keep the word whole
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            transformChunk(buffer, cut, writer);
+            System.arraycopy(buffer, cut, buffer, 0, length - cut);
+            length -= cut;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Transforms a chunk of text that starts and ends between words and writes the result.
+     *
+     * @param buffer the buffer holding the chunk from its beginning
+     * @param length the number of characters in the chunk
+     * @param writer the writer to write the transformed chunk to
+     * @throws IOException if an I/O error occurs
+     */
+    private void transformChunk(char[] buffer, int length, Writer writer) throws IOException {
+        // The snapshot wraps the buffer without copying it and is dropped before the buffer is reused
+        TextSnapshot chunk = new TextSnapshot(editor, RopeBuffer.wrap(CharBuffer.wrap(buffer, 0, length)), 0, null, 0);
+        EditBatch edits = editor.transformEdits(chunk);
+        edits.sort();
+
+        int[] starts = edits.starts();
+        int[] ends = edits.ends();
+        CharSequence[] replacements = edits.replacements();
+        int position = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            writer.write(buffer, position, starts[i] - position);
+            writer.append(replacements[i]);
+            position = ends[i];
+        }
+        writer.write(buffer, position, length - position);
+    }
+
+    /**
+     * Finds the offset of the last whitespace character in the buffer where the editor allows
+     * its transform to be cut, so no word is split. The word after the last whitespace may continue
+     * beyond the buffer, so the editor is only shown the text up to the end of the last complete word.
+     * The word following any cut it finds then lies fully inside that text, which the editor
+     * may need to see to decide on the cut. The text starts where the previous chunk was cut,
+     * so the editor may also follow its transform from the beginning of the text to find a cut.
+     *
+     * @param buffer the buffer to search
+     * @param length the number of characters in the buffer
+     * @return the offset of the cut, or 0 if there is none after the first character
+     */
+    private int lastBoundary(char[] buffer, int length) {
+        int complete = length - 1;
+        while (complete > 0 && !Character.isWhitespace(buffer[complete])) {
+            complete--;
+        }
+        while (complete > 0 && Character.isWhitespace(buffer[complete - 1])) {
+            complete--;
+        }
+        return editor.lastTransformBoundary(CharBuffer.wrap(buffer, 0, complete));
+    }
+}
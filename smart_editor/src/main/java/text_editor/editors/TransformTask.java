@@ -0,0 +1,137 @@
+package main.java.text_editor.editors;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The TransformTask class computes the result of a transform on a fork-join pool.
+ * Ranges longer than {@link #CHUNK_SIZE} characters are split in two at whitespace, so no word
+ * is cut, and lists of ranges are split in halves. The halves run in parallel and their results
+ * are joined left to right, which gives exactly the result of the sequential transform.
+ *
+ * @param <R> the type of the result, such as the edits of the transform
+ * @author Ugnius Teišerskis
+ */
+final class TransformTask<R>
+        extends RecursiveTask<R> {
+
+    /** Number of characters below which a task transforms its ranges itself */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /** The transform computed by the task */
+    private final RangeTransform<R> transform;
+
+    /** The snapshot of the text to transform */
+    private final TextSnapshot text;
+
+    /** The ranges to transform as pairs of beginning and ending offsets, starting and ending between words */
+    private final int[] ranges;
+
+    /**
+     * Constructs a task transforming the specified ranges of a snapshot.
+     *
+     * @param transform the transform to compute
+     * @param text the snapshot of the text to transform
+     * @param ranges sorted ranges as pairs of beginning and ending offsets
+     */
+    TransformTask(RangeTransform<R> transform, TextSnapshot text, int[] ranges) {
+        this.transform = transform;
+        this.text = text;
+        this.ranges = ranges;
+    }
+
+    /**
+     * Transforms the ranges, splitting them into subtasks while they are large.
+     *
+     * @return the result for the ranges
+     */
+    @Override
+    protected R compute() {
+        int length = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            length += ranges[i + 1] - ranges[i];
+        }
+
+        if (length > CHUNK_SIZE) {
+            TransformTask<R> left = null;
+            TransformTask<R> right = null;
+            if (ranges.length > 2) {
+                int half = ranges.length / 4 * 2;
+                left = new TransformTask<>(transform, text, Arrays.copyOfRange(ranges, 0, half));
+                right = new TransformTask<>(transform, text, Arrays.copyOfRange(ranges, half, ranges.length));
+            } else {
+                int split = findSplit(ranges[0], ranges[1]);
+                if (split >= 0) {
+                    left = new TransformTask<>(transform, text, new int[] {ranges[0], split});
+                    right = new TransformTask<>(transform, text, new int[] {split, ranges[1]});
+                }
+            }
+            if (left != null) {
+                left.fork();
+                R rightResult = right.compute();
+                return transform.join(left.join(), rightResult);
+            }
+        }
+
+        R result = transform.createResult();
+        for (int i = 0; i < ranges.length; i += 2) {
+            transform.transformRange(text, ranges[i], ranges[i + 1], result);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the whitespace character closest to the middle of a range where the editor allows
+     * its transform to be cut, so splitting the range there cuts no word.
+     *
+     * @param start the beginning offset of the range, inclusive
+     * @param end the ending offset of the range, exclusive
+     * @return the offset of a whitespace character inside the range, or -1 if there is none
+     */
+    private int findSplit(int start, int end) {
+        int middle = start + (end - start) / 2;
+        for (int forward = middle, backward = middle - 1; forward < end || backward > start; forward++, backward--) {
+            if (forward < end && text.getSource().isTransformBoundary(text, forward)) {
+                return forward;
+            }
+            if (backward > start && text.getSource().isTransformBoundary(text, backward)) {
+                return backward;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The RangeTransform interface describes a transform that can be computed range by range.
+     *
+     * @param <R> the type of the result
+     */
+    interface RangeTransform<R> {
+
+        /**
+         * Creates an empty result.
+         *
+         * @return a new result
+         */
+        R createResult();
+
+        /**
+         * Adds the result for a range of the text to a result.
+         *
+         * @param text the snapshot of the text to transform
+         * @param start the beginning offset of the range, inclusive
+         * @param end the ending offset of the range, exclusive
+         * @param result the result to add to
+         */
+        void transformRange(TextSnapshot text, int start, int end, R result);
+
+        /**
+         * Joins the results of two consecutive parts of the text.
+         *
+         * @param left the result for the earlier part
+         * @param right the result for the later part
+         * @return the result for both parts
+         */
+        R join(R left, R right);
+    }
+}
@@ -1,7 +1,14 @@
 package main.java.text_editor.editors;
 
+import main.java.text_editor.dictionary.TranslationDictionary;
 import main.java.text_editor.interfaces.Transformable;
+import main.java.text_editor.search.CompiledDictionary;
+import main.java.text_editor.search.PhraseTrie;
+import main.java.text_editor.search.WordMap;
+import main.java.text_editor.search.WordTokenizer;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -21,6 +28,18 @@ public class TranslateEditor
 	/** Map maintaining the translation between source words and their target language equivalents */
 	private LinkedHashMap<String, String> translationMap;
 
+	/** Whether the translation map may also be used by a clone of this editor */
+	private transient boolean translationMapShared;
+
+	/** Shared dictionary used for translations instead of the map, or null if the map is used */
+	private transient volatile TranslationDictionary sharedTranslations;
+
+	/** The phrases of the translation map, built when first needed */
+	private transient volatile PhraseTrie phrases;
+
+	/** The translations of the translation map looked up ignoring case, built when first needed */
+	private transient volatile WordMap<String> translationLookup;
+
 	/**
 	 * Constructs a TranslateEditor with source and target language dictionaries.
 	 * The dictionaries must have the same size, where each word at index i in sourceWords
@@ -66,62 +85,340 @@ public class TranslateEditor
 		}
 		
 		translationMap = new LinkedHashMap<>();
+		translationMapShared = false;
 		
 		for (int i = 0; i < sourceWords.size(); i++) {
 			translationMap.put(sourceWords.get(i), targetWords.get(i));
 		}
+		sharedTranslations = null;
+		phrases = null;
+		translationLookup = null;
+		markAllDirty();
+	}
+
+	/**
+	 * Uses a compiled dictionary with translations instead of a translation map.
+	 * Words are translated in place in the mapped file, so no object is created per word
+	 * until the dictionary is changed through {@link #removeTranslation(String)}.
+	 *
+	 * @param dictionary the dictionary opened with {@link CompiledDictionary#open(java.nio.file.Path)}
+	 * @throws IllegalArgumentException if the dictionary has no translations
+	 */
+	public void setTranslationDictionary(CompiledDictionary dictionary) {
+		setTranslationDictionary(TranslationDictionary.of(dictionary));
+	}
+
+	/**
+	 * Uses a shared translation dictionary instead of a translation map. The dictionary is used as it is,
+	 * so setting one that is already loaded costs no I/O and no indexing. Its translations are only copied
+	 * into a map of this editor when the dictionary is changed through {@link #removeTranslation(String)}.
+	 *
+	 * @param dictionary the immutable dictionary to use
+	 */
+	public void setTranslationDictionary(TranslationDictionary dictionary) {
+		sharedTranslations = dictionary;
+		translationMap = null;
+		phrases = null;
+		translationLookup = null;
+		translationMapShared = false;
+		markAllDirty();
+	}
+
+	/**
+	 * Gets the shared translation dictionary used by this editor.
+	 *
+	 * @return the shared dictionary, or null if this editor uses its own translation map
+	 */
+	public TranslationDictionary getTranslationDictionary() {
+		return sharedTranslations;
 	}
 
 	/**
 	 * Translates a single word from the source language to the target language.
 	 * If the word is not found in the translation map, it is returned unchanged.
+	 * A shared dictionary is looked up with the word in lower case.
 	 *
 	 * @param sourceWord the word to translate
 	 * @return the translated word, or the source word if no translation exists
 	 */
 	public String translateWord(String sourceWord) {
-	if (!translationMap.containsKey(sourceWord)) {
+		TranslationDictionary dictionary = sharedTranslations;
+		if (dictionary != null) {
+			CharSequence translation = dictionary.translate(sourceWord);
+			return translation == null ? sourceWord : translation.toString();
+		}
+		if (!translationMap.containsKey(sourceWord)) {
 			return sourceWord;
 		}
 		return translationMap.get(sourceWord);
 	}
 
 	/**
-	 * Transforms the text by translating all recognizable words.
-	 * Words not found in the translation map are preserved as-is.
-	 * Punctuation and word boundaries are preserved during translation.
+	 * Computes the edits that translate all recognizable words in a range of the text.
+	 * Words are looked up in lower case, and words not found in the translation map are preserved as-is.
+	 * Where several words form a phrase of the dictionary, the longest such phrase is translated as a whole.
+	 * Only the words changed since the previous translation are looked at, so translated words are not translated again.
+	 * Punctuation and whitespace are preserved, and only translated words are edited.
+	 *
+	 * <p>The range is read in a single pass. The words following a word that begins a phrase are kept
+	 * while the phrase can still continue, so each word is read once and matched against at most as many
+	 * words as the longest phrase has, whatever the number of phrases.</p>
+	 *
+	 * @param text the snapshot of the text to translate
+	 * @param start the beginning offset of the range, inclusive
+	 * @param end the ending offset of the range, exclusive
+	 * @param edits the batch to add the edits replacing the translated words to
 	 */
-	public void transform() {
-		StringBuilder translatedString = new StringBuilder();
-		String[] words = text.toString().split("\\s+");
-
-		for (int i = 0; i < words.length; i++) {
-			String word = words[i];
+	@Override
+	protected void transformRange(TextSnapshot text, int start, int end, EditBatch edits) {
+		PhraseTrie phrases = getPhrases();
+		WordTokenizer words = new WordTokenizer(text.chunks(start, end), start);
+		// Words read ahead, reused for every phrase; those from next to count have not been translated yet
+		List<Token> lookahead = new ArrayList<>();
+		int count = 0;
+		int next = 0;
 
-			String leadingPunct = "";
-			String trailingPunct = "";
-			String cleanWord = word;
+		while (true) {
+			CharSequence word;
+			int cleanStart;
+			int cleanEnd;
+			boolean endsClean;
+			if (next < count) {
+				Token token = lookahead.get(next++);
+				word = token.cleanWord;
+				cleanStart = token.cleanStart;
+				cleanEnd = token.cleanEnd;
+				endsClean = token.cleanEnd == token.wordEnd;
+			} else {
+				count = 0;
+				next = 0;
+				if (!words.next()) {
+					break;
+				}
+				word = words.getCleanWord();
+				cleanStart = words.getCleanStart();
+				cleanEnd = words.getCleanEnd();
+				endsClean = cleanEnd == words.getWordEnd();
+			}
+			if (cleanStart == cleanEnd) {
+				continue;
+			}
 
-			while (!cleanWord.isEmpty() && !Character.isLetterOrDigit(cleanWord.charAt(0))) {
-				leadingPunct += cleanWord.charAt(0);
-				cleanWord = cleanWord.substring(1);
+			int node = endsClean && !phrases.isEmpty() ? phrases.child(PhraseTrie.ROOT, word) : -1;
+			CharSequence translation = null;
+			if (node >= 0) {
+				if (count == 0) {
+					// Reading ahead reuses the view of the tokenizer, so the word is kept as a token
+					word = readAhead(words, lookahead, count++).cleanWord;
+					next = count;
+				}
+				for (int i = next; node >= 0; i++) {
+					if (i == count) {
+						if (!words.next()) {
+							break;
+						}
+						readAhead(words, lookahead, count++);
+					}
+					Token token = lookahead.get(i);
+					// Phrases only continue over whitespace, so punctuation between words ends them
+					if (token.cleanStart != token.wordStart || token.cleanStart == token.cleanEnd) {
+						break;
+					}
+					node = phrases.child(node, token.cleanWord);
+					if (node >= 0 && phrases.getTranslation(node) != null) {
+						translation = phrases.getTranslation(node);
+						cleanEnd = token.cleanEnd;
+						next = i + 1;
+					}
+					if (token.cleanEnd != token.wordEnd) {
+						break;
+					}
+				}
 			}
+			if (translation == null) {
+				translation = lookUpTranslation(word);
+			}
+			if (translation != null) {
+				edits.replace(cleanStart, cleanEnd, translation);
+			}
+		}
+	}
 
-			while (!cleanWord.isEmpty() && !Character.isLetterOrDigit(cleanWord.charAt(cleanWord.length() - 1))) {
-				trailingPunct = cleanWord.charAt(cleanWord.length() - 1) + trailingPunct;
-				cleanWord = cleanWord.substring(0, cleanWord.length() - 1);
+	/**
+	 * Copies the current word of a tokenizer into a token of the lookahead list.
+	 *
+	 * @param words the tokenizer positioned on the word
+	 * @param lookahead the tokens read ahead, reused for every phrase
+	 * @param index the index of the token to fill
+	 * @return the filled token
+	 */
+	private static Token readAhead(WordTokenizer words, List<Token> lookahead, int index) {
+		if (index == lookahead.size()) {
+			lookahead.add(new Token());
+		}
+		Token token = lookahead.get(index);
+		token.set(words);
+		return token;
+	}
+
+	/**
+	 * Checks whether the text can be cut at the specified offset without changing the translation.
+	 * Besides being whitespace, the offset must not lie within a phrase, which is the case
+	 * unless the word after it continues some phrase of the dictionary.
+	 *
+	 * @param text the text to cut
+	 * @param offset the offset of the character where the text would be cut
+	 * @return true if the text can be cut at the offset, false otherwise
+	 */
+	@Override
+	protected boolean isTransformBoundary(CharSequence text, int offset) {
+		if (!super.isTransformBoundary(text, offset)) {
+			return false;
+		}
+		PhraseTrie phrases = getPhrases();
+		if (phrases.isEmpty()) {
+			return true;
+		}
+
+		int wordStart = offset + 1;
+		while (wordStart < text.length() && Character.isWhitespace(text.charAt(wordStart))) {
+			wordStart++;
+		}
+		if (wordStart == text.length() || !Character.isLetterOrDigit(text.charAt(wordStart))) {
+			return true;
+		}
+		int cleanEnd = wordStart;
+		for (int i = wordStart; i < text.length() && !Character.isWhitespace(text.charAt(i)); i++) {
+			if (Character.isLetterOrDigit(text.charAt(i))) {
+				cleanEnd = i + 1;
 			}
+		}
+		return !phrases.isContinuation(text.subSequence(wordStart, cleanEnd));
+	}
 
-			String translatedWord = cleanWord.isEmpty() ? "" : translateWord(cleanWord.toLowerCase());
+	/**
+	 * Finds the last offset where a text starting between words can be cut without changing the translation.
+	 * A cut before a word that continues no phrase is looked for first. When a long run of words that
+	 * continue phrases leaves no such cut, the phrases are matched from the beginning of the text
+	 * the same way as when translating, and the text is cut before the last phrase or word whose match
+	 * could not be changed by the text that follows. Each phrase has a bounded number of words, so a cut
+	 * is found whenever the text holds more than one phrase.
+	 *
+	 * @param text the text to cut, starting between phrases
+	 * @return the offset of the last cut, or 0 if there is none after the first character
+	 */
+	@Override
+	protected int lastTransformBoundary(CharSequence text) {
+		int cut = super.lastTransformBoundary(text);
+		PhraseTrie phrases = getPhrases();
+		if (cut > 0 || phrases.isEmpty()) {
+			return cut;
+		}
 
-			translatedString.append(leadingPunct).append(translatedWord).append(trailingPunct);
+		WordTokenizer words = new WordTokenizer(text);
+		// Words read ahead, reused for every phrase; those from next to count have not been matched yet
+		List<Token> lookahead = new ArrayList<>();
+		int count = 0;
+		int next = 0;
+		while (true) {
+			Token token;
+			if (next < count) {
+				token = lookahead.get(next++);
+			} else {
+				if (!words.next()) {
+					return cut;
+				}
+				count = 0;
+				token = readAhead(words, lookahead, count++);
+				next = count;
+			}
+			if (token.cleanStart == token.cleanEnd) {
+				continue;
+			}
+			// Every phrase before this word is matched in full, so the translation can start over here
+			if (token.wordStart > 0) {
+				cut = token.wordStart - 1;
+			}
 
-			if (i < words.length - 1) {
-				translatedString.append(" ");
+			int node = token.cleanEnd == token.wordEnd ? phrases.child(PhraseTrie.ROOT, token.cleanWord) : -1;
+			for (int i = next; node >= 0; i++) {
+				if (i == count) {
+					if (!words.next()) {
+						// The phrase may continue after the end of the text
+						return cut;
+					}
+					readAhead(words, lookahead, count++);
+				}
+				Token following = lookahead.get(i);
+				if (following.cleanStart != following.wordStart || following.cleanStart == following.cleanEnd) {
+					break;
+				}
+				node = phrases.child(node, following.cleanWord);
+				if (node >= 0 && phrases.getTranslation(node) != null) {
+					next = i + 1;
+				}
+				if (following.cleanEnd != following.wordEnd) {
+					break;
+				}
 			}
 		}
+	}
 
-		text = translatedString;
+	/**
+	 * Gets the phrases of the dictionary, building them from the translation map when first needed.
+	 *
+	 * @return the phrases and their translations
+	 */
+	private PhraseTrie getPhrases() {
+		TranslationDictionary dictionary = sharedTranslations;
+		if (dictionary != null) {
+			return dictionary.getPhrases();
+		}
+		PhraseTrie result = phrases;
+		if (result == null) {
+			result = new PhraseTrie();
+			if (translationMap != null) {
+				for (Map.Entry<String, String> entry : translationMap.entrySet()) {
+					if (PhraseTrie.isPhrase(entry.getKey())) {
+						result.add(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+			phrases = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up the translation of a word in lower case.
+	 * The word is compared in place, so no lower case copy of it is made.
+	 *
+	 * @param word the word to translate
+	 * @return the translation, or null if there is none
+	 */
+	private CharSequence lookUpTranslation(CharSequence word) {
+		TranslationDictionary dictionary = sharedTranslations;
+		if (dictionary != null) {
+			return dictionary.translate(word);
+		}
+		WordMap<String> lookup = translationLookup;
+		if (lookup == null) {
+			lookup = new WordMap<>(translationMap);
+			translationLookup = lookup;
+		}
+		return lookup.get(word);
+	}
+
+	/**
+	 * Turns a shared dictionary into a translation map, which is needed to change it or save the editor.
+	 */
+	private void loadTranslationMap() {
+		TranslationDictionary dictionary = sharedTranslations;
+		if (dictionary != null) {
+			translationMap = dictionary.toMap();
+			translationLookup = null;
+			sharedTranslations = null;
+		}
 	}
 
 	/**
@@ -130,11 +427,31 @@ public class TranslateEditor
 	 * @param word the source word to remove from the translation map
 	 */
 	public void removeTranslation(String word) {
+		loadTranslationMap();
+		if (translationMapShared) {
+			translationMap = new LinkedHashMap<>(translationMap);
+			translationMapShared = false;
+		}
 		translationMap.remove(word);
+		phrases = null;
+		translationLookup = null;
+		markAllDirty();
+	}
+
+	/**
+	 * Writes this editor with its translations, so a shared dictionary is saved as a translation map.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		loadTranslationMap();
+		out.defaultWriteObject();
 	}
 
 	/**
-	 * Creates and returns a clone of this TranslateEditor.
+	 * Creates and returns a clone of this TranslateEditor in constant time.
+	 * The clone shares the translation map with this editor until either of them changes it.
 	 *
 	 * @return a clone of this TranslateEditor
 	 * @throws CloneNotSupportedException if cloning is not supported
@@ -142,7 +459,44 @@ public class TranslateEditor
 	@Override
 	public Object clone() throws CloneNotSupportedException {
 		TranslateEditor clone = (TranslateEditor) super.clone();
-		clone.translationMap = new LinkedHashMap<>(this.translationMap);
+		clone.translationMapShared = true;
+		this.translationMapShared = true;
 		return clone;
 	}
+
+	/**
+	 * The Token class holds a word read ahead while matching a phrase.
+	 * Tokens are reused, so reading ahead does not allocate once the longest phrase was seen.
+	 */
+	private static final class Token {
+
+		/** The beginning offset of the word, inclusive */
+		private int wordStart;
+
+		/** The ending offset of the word, exclusive */
+		private int wordEnd;
+
+		/** The beginning offset of the clean part of the word, inclusive */
+		private int cleanStart;
+
+		/** The ending offset of the clean part of the word, exclusive */
+		private int cleanEnd;
+
+		/** The clean part of the word */
+		private final StringBuilder cleanWord = new StringBuilder();
+
+		/**
+		 * Copies the current word of a tokenizer into this token.
+		 *
+		 * @param words the tokenizer positioned on the word
+		 */
+		private void set(WordTokenizer words) {
+			wordStart = words.getWordStart();
+			wordEnd = words.getWordEnd();
+			cleanStart = words.getCleanStart();
+			cleanEnd = words.getCleanEnd();
+			cleanWord.setLength(0);
+			cleanWord.append(words.getCleanWord());
+		}
+	}
 }
@@ -1,17 +1,21 @@
 package main.java.text_editor.gui;
 
+import main.java.text_editor.buffer.MappedFileText;
+import main.java.text_editor.dictionary.SpellDictionary;
+import main.java.text_editor.dictionary.TranslationDictionary;
 import main.java.text_editor.editors.*;
 import main.java.text_editor.serialization.*;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The ControlPanel class represents the GUI component containing editor controls.
  * It provides buttons and controls for transforming text, saving/loading editor state,
- * switching between editor types, and selecting dictionaries.
+ * switching between editor types, opening text files, and selecting dictionaries.
  *
  * @author Ugnius Teišerskis
  */
@@ -27,6 +31,9 @@ public class ControlPanel
     /** Button for loading a saved editor state */
     private JButton loadButton;
 
+    /** Button for opening a plain text file in the current editor */
+    private JButton openFileButton;
+
     /** Button for choosing dictionaries for the current editor */
     private JButton chooseDictionaryButton;
 
@@ -85,6 +92,9 @@ public class ControlPanel
         loadButton = new JButton("Load Editor");
         loadButton.addActionListener(e -> loadEditorState());
 
+        openFileButton = new JButton("Open File");
+        openFileButton.addActionListener(e -> openTextFile());
+
         chooseDictionaryButton = new JButton("Choose Dictionary");
         chooseDictionaryButton.addActionListener(e -> chooseDictionary());
 
@@ -92,14 +102,22 @@ public class ControlPanel
         add(transformButton);
         add(saveButton);
         add(loadButton);
+        add(openFileButton);
         add(chooseDictionaryButton);
     }
 
     /**
      * Transforms the text in the current editor according to its transformation rules.
-     * This operation runs on a separate thread to avoid blocking the UI.
+     * The transformation is computed on a separate thread from a snapshot of the text,
+     * so typing continues while it runs. The result is then rebased onto the live text.
+     * Only the words changed since the previous transformation are transformed again,
+     * and large documents are split into chunks that are transformed on all processor cores.
+     * Spell checking does not change the text; the misspelled words are highlighted instead.
      */
     private void transformText() {
+        final Editor editor = editorManager.getCurrentEditor();
+        final TextSnapshot snapshot = editor.snapshot();
+
         Thread transformThread = new Thread(() -> {
             SwingUtilities.invokeLater(() -> {
                 statusPanel.setStatus("Transforming text...", true);
@@ -108,11 +126,23 @@ public class ControlPanel
 
             try {
                 Thread.sleep(500);
-                editorManager.getCurrentEditor().transform();
+                final boolean checking = editor instanceof SpellCheckEditor;
+                final MisspellingSpans misspellings = checking
+                        ? ((SpellCheckEditor) editor).findMisspellings(snapshot, ForkJoinPool.commonPool()) : null;
+                final EditBatch edits = checking ? null : editor.transformEdits(snapshot, ForkJoinPool.commonPool());
 
                 SwingUtilities.invokeLater(() -> {
-                    editorPanel.updateDisplay();
-                    statusPanel.setStatusWithProgress("Text transformed successfully", 100, false);
+                    boolean applied = checking
+                            ? ((SpellCheckEditor) editor).applyMisspellings(misspellings, snapshot)
+                            : editor.applyTransform(edits, snapshot);
+                    if (applied) {
+                        if (editor == editorManager.getCurrentEditor()) {
+                            editorPanel.refreshDisplay();
+                        }
+                        statusPanel.setStatusWithProgress("Text transformed successfully", 100, false);
+                    } else {
+                        statusPanel.setStatus("Text changed too much during the transformation, try again", false);
+                    }
                     transformButton.setEnabled(true);
 
                     Timer timer = new Timer(2000, event -> {
@@ -136,9 +166,16 @@ public class ControlPanel
     /**
      * Saves the current editor state to a file selected by the user.
      * This operation runs on a separate thread to avoid blocking the UI.
+     * A clone of the editor is saved, which is taken in constant time and does not change while typing continues.
      */
     private void saveEditorState() {
-        final Editor editorToSave = editorManager.getCurrentEditor();
+        final Editor editorToSave;
+        try {
+            editorToSave = (Editor) editorManager.getCurrentEditor().clone();
+        } catch (CloneNotSupportedException e) {
+            statusPanel.setStatus("Error saving editor: " + e.getMessage(), false);
+            return;
+        }
         final String editorType = editorTypeComboBox.getSelectedItem().toString();
 
         JFileChooser fileChooser = new JFileChooser();
@@ -231,6 +268,7 @@ public class ControlPanel
                             (loadedEditor instanceof TranslateEditor && "Translate Editor".equals(editorType))) {
 
                         editorManager.setCurrentEditor(loadedEditor);
+                        editorManager.trainNextWordModel(loadedEditor);
                         editorPanel.updateDisplay();
                         statusPanel.setStatusWithProgress("Editor loaded successfully from " + fileName, 100, false);
                     } else {
@@ -264,6 +302,62 @@ public class ControlPanel
         loadThread.start();
     }
 
+    /**
+     * Opens a UTF-8 text file selected by the user in the current editor in large-file mode.
+     * The file is mapped and indexed on a separate thread, since indexing scans the whole file,
+     * and is then handed to the editor on the event dispatch thread.
+     */
+    private void openTextFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Text File");
+        fileChooser.setCurrentDirectory(new File(editorManager.getResourcePath()));
+
+        int userSelection = fileChooser.showOpenDialog(SwingUtilities.getWindowAncestor(this));
+
+        if (userSelection != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        final File file = fileChooser.getSelectedFile();
+
+        Thread openThread = new Thread(() -> {
+            SwingUtilities.invokeLater(() -> {
+                statusPanel.setStatus("Opening file...", true);
+                openFileButton.setEnabled(false);
+            });
+
+            try {
+                final MappedFileText text = MappedFileText.open(file.toPath(), StandardCharsets.UTF_8);
+                text.length();
+
+                SwingUtilities.invokeLater(() -> {
+                    editorManager.openTextFile(text);
+                    editorPanel.updateDisplay();
+                    statusPanel.setStatusWithProgress("Opened " + file.getAbsolutePath(), 100, false);
+                    openFileButton.setEnabled(true);
+
+                    Timer timer = new Timer(3000, event -> {
+                        statusPanel.resetStatus();
+                    });
+                    timer.setRepeats(false);
+                    timer.start();
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    statusPanel.setStatus("Error opening file: " + e.getMessage(), false);
+                    openFileButton.setEnabled(true);
+
+                    JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(this),
+                            "Error opening file: " + e.getMessage(),
+                            "Open Error", JOptionPane.ERROR_MESSAGE);
+                });
+                e.printStackTrace();
+            }
+        });
+
+        openThread.start();
+    }
+
     /**
      * Chooses the appropriate dictionary based on the current editor type.
      * Delegates to specific dictionary chooser methods.
@@ -304,23 +398,23 @@ public class ControlPanel
             try {
                 Thread.sleep(500);
 
-                ArrayList<String> words = EditorManager.readWordsFromFile(dictionaryPath);
-
-                Editor currentEditor = editorManager.getCurrentEditor();
-                if (currentEditor instanceof SpellCheckEditor) {
-                    ((SpellCheckEditor) currentEditor).setDictionary(words);
+                final SpellDictionary dictionary = DictionaryCache.getSpellDictionary(dictionaryPath);
 
-                    SwingUtilities.invokeLater(() -> {
+                SwingUtilities.invokeLater(() -> {
+                    // Editors are only changed on the event dispatch thread
+                    Editor currentEditor = editorManager.getCurrentEditor();
+                    if (currentEditor instanceof SpellCheckEditor) {
+                        ((SpellCheckEditor) currentEditor).setDictionary(dictionary);
                         statusPanel.setStatusWithProgress("Dictionary loaded successfully", 100, false);
-                        chooseDictionaryButton.setEnabled(true);
+                    }
+                    chooseDictionaryButton.setEnabled(true);
 
-                        Timer timer = new Timer(2000, event -> {
-                            statusPanel.resetStatus();
-                        });
-                        timer.setRepeats(false);
-                        timer.start();
+                    Timer timer = new Timer(2000, event -> {
+                        statusPanel.resetStatus();
                     });
-                }
+                    timer.setRepeats(false);
+                    timer.start();
+                });
             } catch (Exception e) {
                 SwingUtilities.invokeLater(() -> {
                     statusPanel.setStatus("Error loading dictionary: " + e.getMessage(), false);
@@ -339,7 +433,7 @@ public class ControlPanel
 
     /**
      * Prompts the user to select source and target dictionary files for translation.
-     * This operation runs on a separate thread to avoid blocking the UI.
+     * A compiled dictionary holds both, so choosing one skips the target dictionary.
      */
     private void chooseTranslateDictionaries() {
         JFileChooser sourceFileChooser = new JFileChooser();
@@ -353,6 +447,11 @@ public class ControlPanel
         }
 
         final String sourceDictionaryPath = sourceFileChooser.getSelectedFile().getAbsolutePath();
+        if (DictionaryCache.isCompiled(sourceDictionaryPath)) {
+            // A compiled dictionary holds the translations too
+            loadTranslateDictionaries(sourceDictionaryPath, null);
+            return;
+        }
 
         JFileChooser targetFileChooser = new JFileChooser();
         targetFileChooser.setDialogTitle("Select Target Dictionary File");
@@ -364,8 +463,17 @@ public class ControlPanel
             return;
         }
 
-        final String targetDictionaryPath = targetFileChooser.getSelectedFile().getAbsolutePath();
+        loadTranslateDictionaries(sourceDictionaryPath, targetFileChooser.getSelectedFile().getAbsolutePath());
+    }
 
+    /**
+     * Loads translation dictionaries for the current editor.
+     * This operation runs on a separate thread to avoid blocking the UI.
+     *
+     * @param sourceDictionaryPath the path of the source dictionary, or of a compiled dictionary
+     * @param targetDictionaryPath the path of the target dictionary, or null for a compiled dictionary
+     */
+    private void loadTranslateDictionaries(String sourceDictionaryPath, String targetDictionaryPath) {
         Thread loadDictionariesThread = new Thread(() -> {
             SwingUtilities.invokeLater(() -> {
                 statusPanel.setStatus("Loading dictionaries...", true);
@@ -375,24 +483,24 @@ public class ControlPanel
             try {
                 Thread.sleep(500);
 
-                ArrayList<String> sourceWords = EditorManager.readWordsFromFile(sourceDictionaryPath);
-                ArrayList<String> targetWords = EditorManager.readWordsFromFile(targetDictionaryPath);
-
-                Editor currentEditor = editorManager.getCurrentEditor();
-                if (currentEditor instanceof TranslateEditor) {
-                    ((TranslateEditor) currentEditor).createTranslationMap(sourceWords, targetWords);
+                final TranslationDictionary dictionary =
+                        DictionaryCache.getTranslationDictionary(sourceDictionaryPath, targetDictionaryPath);
 
-                    SwingUtilities.invokeLater(() -> {
+                SwingUtilities.invokeLater(() -> {
+                    // Editors are only changed on the event dispatch thread
+                    Editor currentEditor = editorManager.getCurrentEditor();
+                    if (currentEditor instanceof TranslateEditor) {
+                        ((TranslateEditor) currentEditor).setTranslationDictionary(dictionary);
                         statusPanel.setStatusWithProgress("Dictionaries loaded successfully", 100, false);
-                        chooseDictionaryButton.setEnabled(true);
+                    }
+                    chooseDictionaryButton.setEnabled(true);
 
-                        Timer timer = new Timer(2000, event -> {
-                            statusPanel.resetStatus();
-                        });
-                        timer.setRepeats(false);
-                        timer.start();
+                    Timer timer = new Timer(2000, event -> {
+                        statusPanel.resetStatus();
                     });
-                }
+                    timer.setRepeats(false);
+                    timer.start();
+                });
             } catch (Exception e) {
                 SwingUtilities.invokeLater(() -> {
                     statusPanel.setStatus("Error loading dictionaries: " + e.getMessage(), false);
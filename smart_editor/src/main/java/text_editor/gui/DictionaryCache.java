@@ -0,0 +1,172 @@
+package main.java.text_editor.gui;
+
+import main.java.text_editor.dictionary.SpellDictionary;
+import main.java.text_editor.dictionary.TranslationDictionary;
+import main.java.text_editor.search.CompiledDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The DictionaryCache class keeps the dictionaries loaded by the application, so each dictionary file
+ * is read and indexed once per process. Dictionaries are immutable and shared by all editors using them,
+ * and switching editors only checks the modification time and size of the files, without reading them.
+ * A dictionary whose files changed since it was loaded is loaded again.
+ *
+ * @author Ugnius Teišerskis
+ */
+final class DictionaryCache {
+
+    /** The loaded dictionaries by the kind of dictionary and the paths of its files */
+    private static final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Prevents instantiation, as the cache is shared by the whole process.
+     */
+    private DictionaryCache() {
+    }
+
+    /**
+     * Gets the spell checking dictionary stored in a file, loading it if needed.
+     * A file ending with {@link EditorManager#COMPILED_DICTIONARY_EXTENSION} is opened as a compiled
+     * dictionary, and any other file is read as a text dictionary.
+     *
+     * @param path the path of the dictionary file
+     * @return the shared dictionary
+     * @throws IOException if a compiled dictionary cannot be opened
+     */
+    static SpellDictionary getSpellDictionary(String path) throws IOException {
+        if (isCompiled(path)) {
+            CompiledDictionary compiled = getCompiledDictionary(path);
+            return get("spell", new String[] {path}, () -> SpellDictionary.of(compiled));
+        }
+        return get("spell", new String[] {path},
+                () -> SpellDictionary.of(EditorManager.readWordsFromFile(path)));
+    }
+
+    /**
+     * Gets the translation dictionary stored in a source and a target file, or in a compiled dictionary,
+     * loading it if needed.
+     *
+     * @param sourcePath the path of the source dictionary, or of a compiled dictionary
+     * @param targetPath the path of the target dictionary, or null for a compiled dictionary
+     * @return the shared dictionary
+     * @throws IOException if a compiled dictionary cannot be opened
+     * @throws IllegalArgumentException if the dictionaries have different sizes or the compiled one has no translations
+     */
+    static TranslationDictionary getTranslationDictionary(String sourcePath, String targetPath) throws IOException {
+        if (targetPath == null) {
+            CompiledDictionary compiled = getCompiledDictionary(sourcePath);
+            return get("translate", new String[] {sourcePath},
+                    () -> TranslationDictionary.of(compiled));
+        }
+        return get("translate", new String[] {sourcePath, targetPath},
+                () -> TranslationDictionary.of(EditorManager.readWordsFromFile(sourcePath),
+                        EditorManager.readWordsFromFile(targetPath)));
+    }
+
+    /**
+     * Checks whether a path names a compiled dictionary.
+     *
+     * @param path the path of the dictionary file
+     * @return true if the file is a compiled dictionary, false if it is a text dictionary
+     */
+    static boolean isCompiled(String path) {
+        return path.endsWith(EditorManager.COMPILED_DICTIONARY_EXTENSION);
+    }
+
+    /**
+     * Gets a compiled dictionary, mapping its file if needed. Spell checking and translation
+     * dictionaries over the same file share the mapping.
+     *
+     * @param path the path of the compiled dictionary
+     * @return the compiled dictionary
+     * @throws IOException if the file cannot be opened or is not a compiled dictionary
+     */
+    private static CompiledDictionary getCompiledDictionary(String path) throws IOException {
+        return get("compiled", new String[] {path}, () -> CompiledDictionary.open(new File(path).toPath()));
+    }
+
+    /**
+     * Gets a cached dictionary, loading it if it is missing or any of its files changed since it was loaded.
+     *
+     * @param kind the kind of the dictionary, as one file may be loaded as several kinds
+     * @param paths the paths of the files the dictionary is loaded from
+     * @param loader the loader reading the dictionary from its files
+     * @param <T> the type of the dictionary
+     * @return the dictionary
+     * @throws IOException if the dictionary cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> T get(String kind, String[] paths, Loader<T> loader) throws IOException {
+        StringBuilder key = new StringBuilder(kind);
+        for (String path : paths) {
+            key.append(File.pathSeparatorChar).append(new File(path).getAbsolutePath());
+        }
+        long[] stamps = stamp(paths);
+        Entry entry = entries.get(key.toString());
+        if (entry == null || !Arrays.equals(entry.stamps, stamps)) {
+            entry = new Entry(stamps, loader.load());
+            entries.put(key.toString(), entry);
+        }
+        return (T) entry.dictionary;
+    }
+
+    /**
+     * Reads the modification time and size of each file, which change whenever a file is rewritten.
+     *
+     * @param paths the paths of the files
+     * @return the modification time and size of each file in turn, or zeros for a missing file
+     */
+    private static long[] stamp(String[] paths) {
+        long[] stamps = new long[paths.length * 2];
+        for (int i = 0; i < paths.length; i++) {
+            File file = new File(paths[i]);
+            stamps[i * 2] = file.lastModified();
+            stamps[i * 2 + 1] = file.length();
+        }
+        return stamps;
+    }
+
+    /**
+     * A dictionary in the cache together with the stamps of its files when it was loaded.
+     */
+    private static final class Entry {
+
+        /** The modification time and size of each file of the dictionary */
+        private final long[] stamps;
+
+        /** The loaded dictionary */
+        private final Object dictionary;
+
+        /**
+         * Constructs an entry.
+         *
+         * @param stamps the stamps of the files
+         * @param dictionary the loaded dictionary
+         */
+        private Entry(long[] stamps, Object dictionary) {
+            this.stamps = stamps;
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * The Loader interface reads a dictionary from its files.
+     *
+     * @param <T> the type of the dictionary
+     */
+    private interface Loader<T> {
+
+        /**
+         * Loads the dictionary.
+         *
+         * @return the dictionary
+         * @throws IOException if the dictionary cannot be loaded
+         */
+        T load() throws IOException;
+    }
+}
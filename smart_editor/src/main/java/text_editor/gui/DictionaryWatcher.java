@@ -0,0 +1,116 @@
+package main.java.text_editor.gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DictionaryWatcher class watches dictionary files in a directory and runs an action on a background
+ * thread whenever any of them is created, modified or replaced by moving another file over it.
+ * Saving a file often fires several events, so the action runs once after the events have settled.
+ * A failing action is reported and the files are still watched.
+ *
+ * @author Ugnius Teišerskis
+ */
+final class DictionaryWatcher
+        implements Closeable {
+
+    /** Number of milliseconds without events after which a change is considered complete */
+    private static final long SETTLE_MILLIS = 200;
+
+    /** The service delivering the events of the watched directory */
+    private final WatchService watchService;
+
+    /** The names of the watched files within the directory */
+    private final Set<Path> fileNames = new HashSet<>();
+
+    /** The action run after a watched file changed */
+    private final Runnable onChange;
+
+    /** The thread waiting for the events */
+    private final Thread thread;
+
+    /**
+     * Starts watching files of a directory.
+     *
+     * @param directory the directory holding the files
+     * @param fileNames the names of the files to watch
+     * @param onChange the action to run on the watcher thread after a file changed
+     * @throws IOException if the directory cannot be watched
+     */
+    DictionaryWatcher(Path directory, Collection<String> fileNames, Runnable onChange) throws IOException {
+        for (String fileName : fileNames) {
+            this.fileNames.add(Paths.get(fileName));
+        }
+        this.onChange = onChange;
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::watch, "Dictionary watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for changes of the watched files and runs the action after each of them until the watcher is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = isWatchedFileChanged(watchService.take());
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isWatchedFileChanged(key);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException | InternalError e) {
+                        // An InternalError is thrown when a mapped dictionary file was truncated under a reader
+                        System.err.println("Warning: reloading dictionaries failed: " + e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed
+        }
+    }
+
+    /**
+     * Checks the events of a key for changes of the watched files and resets the key for further events.
+     *
+     * @param key the signalled key
+     * @return true if a watched file changed or events were lost, false otherwise
+     */
+    private boolean isWatchedFileChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileNames.contains(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the files.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
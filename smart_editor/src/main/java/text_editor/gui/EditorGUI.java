@@ -57,7 +57,7 @@ public class EditorGUI
         frame.setSize(700, 600);
 
         statusPanel = new StatusPanel();
-        editorPanel = new EditorPanel(editorManager);
+        editorPanel = new EditorPanel(editorManager, statusPanel);
         controlPanel = new ControlPanel(editorManager, editorPanel, statusPanel);
 
         JPanel mainPanel = new JPanel(new BorderLayout());
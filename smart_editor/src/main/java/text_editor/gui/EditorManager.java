@@ -1,10 +1,16 @@
 package main.java.text_editor.gui;
 
+import main.java.text_editor.buffer.MappedFileText;
+import main.java.text_editor.dictionary.SpellDictionary;
+import main.java.text_editor.dictionary.TranslationDictionary;
 import main.java.text_editor.editors.*;
 import main.java.text_editor.factory.*;
+import main.java.text_editor.prediction.NGramModel;
 
+import javax.swing.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * The EditorManager class manages editor instances and handles editor-specific operations.
@@ -33,13 +39,35 @@ public class EditorManager {
     /** Base path for resource files */
     private static final String RESOURCE_PATH = "smart_editor/src/main/resources/";
 
+    /** Default path to the dictionary compiled from the source and target dictionaries */
+    private static final String DEFAULT_COMPILED_DICTIONARY_PATH = "smart_editor/src/main/resources/dictionary.dict";
+
+    /** Number of characters at the beginning of a document the next-word model is trained on */
+    private static final int MAX_TRAINING_CHARS = 1 << 24;
+
+    /** File name extension of compiled dictionaries */
+    public static final String COMPILED_DICTIONARY_EXTENSION = ".dict";
+
+    /** The default spell checking dictionary last given to an editor */
+    private volatile SpellDictionary defaultSpellDictionary;
+
+    /** The default translation dictionary last given to an editor */
+    private volatile TranslationDictionary defaultTranslationDictionary;
+
+    /** Watcher reloading the default dictionaries when their files change, or null if they are not watched */
+    private DictionaryWatcher dictionaryWatcher;
+
+    /** The next-word model trained from the last loaded document, or null before a document is loaded */
+    private NGramModel nextWordModel;
+
     /**
      * Constructs a new EditorManager.
-     * Initializes the factories and sets up a default SpellCheckEditor.
+     * Initializes the factories, sets up a default SpellCheckEditor and starts watching the default dictionaries.
      */
     public EditorManager() {
         initializeFactories();
         switchToSpellCheckEditor();
+        watchDefaultDictionaries();
     }
 
     /**
@@ -52,43 +80,207 @@ public class EditorManager {
 
     /**
      * Switches to a SpellCheckEditor, preserving the current text content.
-     * Loads the default dictionary for the spell check editor.
+     * Uses the default dictionary for the spell check editor, which is only loaded the first time.
      */
     public void switchToSpellCheckEditor() {
-        String text = "";
-        if (getCurrentEditor() != null) {
-            text = getCurrentEditor().toString();
-        }
+        Editor previousEditor = getCurrentEditor();
 
         currentEditor = spellCheckFactory.createEditor();
-        currentEditor.addText(text);
+        if (previousEditor != null) {
+            currentEditor.copyTextFrom(previousEditor);
+        }
 
         if (currentEditor instanceof SpellCheckEditor) {
-            ArrayList<String> words = readWordsFromFile(DEFAULT_SOURCE_DICTIONARY_PATH);
-            ((SpellCheckEditor) currentEditor).setDictionary(words);
+            defaultSpellDictionary = loadDefaultSpellDictionary();
+            ((SpellCheckEditor) currentEditor).setDictionary(defaultSpellDictionary);
+            ((SpellCheckEditor) currentEditor).setNextWordModel(nextWordModel);
         }
     }
 
     /**
      * Switches to a TranslateEditor, preserving the current text content.
-     * Loads the default source and target dictionaries for the translate editor.
+     * Uses the default source and target dictionaries for the translate editor, which are only loaded the first time.
      */
     public void switchToTranslateEditor() {
-        String text = "";
-        if (getCurrentEditor() != null) {
-            text = getCurrentEditor().toString();
-        }
+        Editor previousEditor = getCurrentEditor();
 
         currentEditor = translateFactory.createEditor();
-        currentEditor.addText(text);
+        if (previousEditor != null) {
+            currentEditor.copyTextFrom(previousEditor);
+        }
 
         if (currentEditor instanceof TranslateEditor) {
-            ArrayList<String> sourceWords = readWordsFromFile(DEFAULT_SOURCE_DICTIONARY_PATH);
-            ArrayList<String> targetWords = readWordsFromFile(DEFAULT_TARGET_DICTIONARY_PATH);
-            ((TranslateEditor) currentEditor).createTranslationMap(sourceWords, targetWords);
+            try {
+                defaultTranslationDictionary = loadDefaultTranslationDictionary();
+            } catch (IllegalArgumentException e) {
+                if (defaultTranslationDictionary == null) {
+                    throw e;
+                }
+                // Keep the translations loaded before the dictionaries stopped matching
+                System.err.println("Warning: " + e.getMessage());
+            }
+            ((TranslateEditor) currentEditor).setTranslationDictionary(defaultTranslationDictionary);
         }
     }
 
+    /**
+     * Gets the default spell checking dictionary, preferring the compiled dictionary when it is up to date.
+     *
+     * @return the shared default dictionary
+     */
+    private static SpellDictionary loadDefaultSpellDictionary() {
+        String compiledPath = getDefaultCompiledDictionaryPath();
+        try {
+            return DictionaryCache.getSpellDictionary(compiledPath != null ? compiledPath : DEFAULT_SOURCE_DICTIONARY_PATH);
+        } catch (IOException e) {
+            System.err.println("Warning: " + e.getMessage());
+            return SpellDictionary.of(readWordsFromFile(DEFAULT_SOURCE_DICTIONARY_PATH));
+        }
+    }
+
+    /**
+     * Gets the default translation dictionary, preferring the compiled dictionary when it is up to date.
+     *
+     * @return the shared default dictionary
+     * @throws IllegalArgumentException if the source and target dictionaries have different sizes
+     */
+    private static TranslationDictionary loadDefaultTranslationDictionary() {
+        String compiledPath = getDefaultCompiledDictionaryPath();
+        if (compiledPath != null) {
+            try {
+                return DictionaryCache.getTranslationDictionary(compiledPath, null);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Warning: " + e.getMessage());
+            }
+        }
+        try {
+            return DictionaryCache.getTranslationDictionary(DEFAULT_SOURCE_DICTIONARY_PATH, DEFAULT_TARGET_DICTIONARY_PATH);
+        } catch (IOException e) {
+            // Text dictionaries are read with default words instead of failing
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts watching the files of the default dictionaries, so changes are picked up without restarting
+     * the editors. If the resource directory cannot be watched, the dictionaries are only read when switching editors.
+     */
+    private void watchDefaultDictionaries() {
+        try {
+            dictionaryWatcher = new DictionaryWatcher(new File(RESOURCE_PATH).toPath(), Arrays.asList(
+                    new File(DEFAULT_SOURCE_DICTIONARY_PATH).getName(),
+                    new File(DEFAULT_TARGET_DICTIONARY_PATH).getName(),
+                    new File(DEFAULT_COMPILED_DICTIONARY_PATH).getName()), this::reloadDefaultDictionaries);
+        } catch (IOException e) {
+            System.err.println("Warning: dictionaries are not watched: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the changed default dictionaries on the watcher thread and then gives them to the current editor
+     * on the event dispatch thread. The editor swaps its lookup set in a single write, so transforms running
+     * in the background are not paused and see either the old or the new dictionary for each word.
+     * An editor whose dictionary was chosen by the user or changed since is left alone.
+     */
+    private void reloadDefaultDictionaries() {
+        SpellDictionary spellDictionary = loadDefaultSpellDictionary();
+        TranslationDictionary loadedTranslations;
+        try {
+            loadedTranslations = loadDefaultTranslationDictionary();
+        } catch (IllegalArgumentException e) {
+            // The source and target dictionaries are being edited one after the other, so keep the old translations
+            System.err.println("Warning: " + e.getMessage());
+            loadedTranslations = defaultTranslationDictionary;
+        }
+        TranslationDictionary translationDictionary = loadedTranslations;
+
+        SwingUtilities.invokeLater(() -> {
+            // Editors are only changed on the event dispatch thread
+            if (currentEditor instanceof SpellCheckEditor) {
+                SpellCheckEditor editor = (SpellCheckEditor) currentEditor;
+                if (editor.getSharedDictionary() == defaultSpellDictionary && spellDictionary != defaultSpellDictionary) {
+                    editor.setDictionary(spellDictionary);
+                }
+            } else if (currentEditor instanceof TranslateEditor) {
+                TranslateEditor editor = (TranslateEditor) currentEditor;
+                if (editor.getTranslationDictionary() == defaultTranslationDictionary
+                        && translationDictionary != defaultTranslationDictionary) {
+                    editor.setTranslationDictionary(translationDictionary);
+                }
+            }
+            defaultSpellDictionary = spellDictionary;
+            defaultTranslationDictionary = translationDictionary;
+        });
+    }
+
+    /**
+     * Stops watching the files of the default dictionaries.
+     */
+    public void stopWatchingDictionaries() {
+        if (dictionaryWatcher != null) {
+            try {
+                dictionaryWatcher.close();
+            } catch (IOException e) {
+                System.err.println("Warning: " + e.getMessage());
+            }
+            dictionaryWatcher = null;
+        }
+    }
+
+    /**
+     * Gets the path of the default compiled dictionary if it exists and is not older than the text dictionaries
+     * it was compiled from. Opening it maps the file, which is much faster than parsing the text dictionaries.
+     *
+     * @return the path of the compiled dictionary, or null if the text dictionaries have to be read instead
+     */
+    private static String getDefaultCompiledDictionaryPath() {
+        File compiled = new File(DEFAULT_COMPILED_DICTIONARY_PATH);
+        if (!compiled.isFile()
+                || compiled.lastModified() < new File(DEFAULT_SOURCE_DICTIONARY_PATH).lastModified()
+                || compiled.lastModified() < new File(DEFAULT_TARGET_DICTIONARY_PATH).lastModified()) {
+            return null;
+        }
+        return DEFAULT_COMPILED_DICTIONARY_PATH;
+    }
+
+    /**
+     * Opens a plain text file in the current editor in large-file mode and trains the next-word
+     * model from it. The file is memory-mapped instead of being read onto the heap.
+     * It should be indexed beforehand by reading its length off the event dispatch thread,
+     * since indexing a UTF-8 file scans all of it.
+     *
+     * @param file the mapped text of the file to open
+     */
+    public void openTextFile(MappedFileText file) {
+        currentEditor.openFile(file);
+        trainNextWordModel(currentEditor);
+    }
+
+    /**
+     * Trains the next-word model from the text of a loaded document on a background thread and then
+     * gives it to the current editor on the event dispatch thread. The text is read from a snapshot,
+     * so the document can be edited while the model is trained. Only the first
+     * {@value #MAX_TRAINING_CHARS} characters are read, so training a large file opened in large-file
+     * mode takes bounded time and memory.
+     *
+     * @param editor the editor holding the loaded document
+     */
+    public void trainNextWordModel(Editor editor) {
+        TextSnapshot snapshot = editor.snapshot();
+        Thread trainingThread = new Thread(() -> {
+            int end = Math.min(snapshot.length(), MAX_TRAINING_CHARS);
+            NGramModel model = new NGramModel.Builder().addText(snapshot.chunks(0, end)).build();
+            SwingUtilities.invokeLater(() -> {
+                nextWordModel = model;
+                if (currentEditor instanceof SpellCheckEditor) {
+                    ((SpellCheckEditor) currentEditor).setNextWordModel(model);
+                }
+            });
+        }, "Next-word training");
+        trainingThread.setDaemon(true);
+        trainingThread.start();
+    }
+
     /**
      * Gets the currently active editor.
      *
@@ -1,32 +1,95 @@
 package main.java.text_editor.gui;
 
+import main.java.text_editor.editors.Editor;
+import main.java.text_editor.editors.MisspellingSpans;
 import main.java.text_editor.editors.SpellCheckEditor;
+import main.java.text_editor.editors.TextChange;
+import main.java.text_editor.editors.TextSnapshot;
 
 import javax.swing.*;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Highlighter;
 import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The EditorPanel class represents the GUI component displaying the editor content.
  * It handles text display, user input, and word prediction features.
  *
+ * <p>A text longer than {@value #MAX_DISPLAYED_CHARS} characters, such as a large file opened in
+ * large-file mode, is not copied into the text area as a whole. The text area shows a window of the
+ * text around the caret instead, which moves when the caret leaves it, so the heap used by the
+ * display and the time taken to fill it do not depend on the size of the document.</p>
+ *
  * @author Ugnius Teišerskis
  */
 public class EditorPanel
         extends JPanel {
 
+    /** Largest number of characters shown in the text area at once */
+    private static final int MAX_DISPLAYED_CHARS = 1 << 20;
+
+    /** Largest distance the start of the window is moved back to begin at the start of a line */
+    private static final int MAX_LINE_SNAP = 4096;
+
+    /** Painter drawing the extra carets of the editor as thin vertical bars */
+    private static final Highlighter.HighlightPainter EXTRA_CARET_PAINTER = (g, p0, p1, bounds, c) -> {
+        try {
+            Rectangle2D caret = c.modelToView2D(p0);
+            g.setColor(c.getCaretColor());
+            g.fillRect((int) caret.getX(), (int) caret.getY(), 1, (int) caret.getHeight());
+        } catch (BadLocationException ex) {
+            // The caret is outside the document while the display catches up
+        }
+    };
+
+    /** Painter underlining misspelled words with a red zigzag line */
+    private static final Highlighter.HighlightPainter MISSPELLING_PAINTER = (g, p0, p1, bounds, c) -> {
+        try {
+            Rectangle2D start = c.modelToView2D(p0);
+            Rectangle2D end = c.modelToView2D(p1);
+            g.setColor(Color.RED);
+            int y = (int) (start.getY() + start.getHeight()) - 2;
+            // A word wrapped over two lines is only underlined on its first line
+            int endX = end.getY() == start.getY() ? (int) end.getX() : c.getWidth();
+            for (int x = (int) start.getX(), up = 0; x < endX; x += 2, up = 1 - up) {
+                g.drawLine(x, y + up, x + 2, y + 1 - up);
+            }
+        } catch (BadLocationException ex) {
+            // The word is outside the document while the display catches up
+        }
+    };
+
     /** Text area component for displaying and editing text */
     private JTextArea textArea;
 
     /** Manager for the editor instances */
     private EditorManager editorManager;
 
+    /** Panel showing the location of the caret */
+    private StatusPanel statusPanel;
+
+    /** Offset in the editor text of the first character shown in the text area */
+    private int displayStart;
+
+    /** Offset in the editor text after the last character shown in the text area */
+    private int displayEnd;
+
     /** Flag to prevent infinite update loops when updating from the editor */
     private boolean updatingFromEditor = false;
 
@@ -36,13 +99,37 @@ public class EditorPanel
     /** Timer for delaying word prediction display */
     private javax.swing.Timer predictionTimer;
 
+    /** Executor looking up predictions on a background thread, one request at a time */
+    private final ExecutorService predictionExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Word prediction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The prediction request being looked up, or null if there is none */
+    private Future<?> pendingPrediction;
+
+    /** Number of the newest prediction request; the results of older requests are dropped */
+    private long predictionRequest;
+
+    /** Highlight tags of the extra carets currently painted in the text area */
+    private final List<Object> extraCaretHighlights = new ArrayList<>();
+
+    /** Highlight tags of the misspelled words currently painted in the text area */
+    private final List<Object> misspellingHighlights = new ArrayList<>();
+
+    /** The caret position before the most recent caret move, used when adding a caret by clicking */
+    private int previousCaretPosition;
+
     /**
      * Constructs a new EditorPanel with the specified editor manager.
      *
      * @param editorManager the manager for editor instances
+     * @param statusPanel the panel showing the location of the caret
      */
-    public EditorPanel(EditorManager editorManager) {
+    public EditorPanel(EditorManager editorManager, StatusPanel statusPanel) {
         this.editorManager = editorManager;
+        this.statusPanel = statusPanel;
 
         setLayout(new BorderLayout());
         createTextArea();
@@ -64,6 +151,7 @@ public class EditorPanel
 
         JScrollPane scrollPane = new JScrollPane(textArea);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        scrollPane.getViewport().addChangeListener(e -> showMisspellings());
 
         add(scrollPane, BorderLayout.CENTER);
     }
@@ -76,12 +164,130 @@ public class EditorPanel
             @Override
             public void caretUpdate(CaretEvent e) {
                 if (!updatingFromEditor) {
-                    editorManager.getCurrentEditor().setCaretPosition(e.getDot());
+                    previousCaretPosition = editorManager.getCurrentEditor().getCaretPosition();
+                    editorManager.getCurrentEditor().setCaretPosition(displayStart + e.getDot());
                 }
+                showCaretLocation();
             }
         });
     }
 
+    /**
+     * Shows the line and column of the editor caret in the status panel.
+     * Both are looked up in the line index of the editor instead of scanning the text.
+     */
+    private void showCaretLocation() {
+        Editor editor = editorManager.getCurrentEditor();
+        statusPanel.setCaretLocation(editor.getCaretLine() + 1, editor.getCaretColumn() + 1);
+    }
+
+    /**
+     * Keeps the current caret as an extra caret and moves the main caret to the same column
+     * of an adjacent line, which lets the same edit be typed into a column of several lines.
+     *
+     * @param direction -1 for the previous line, 1 for the next line
+     */
+    private void addCaretOnAdjacentLine(int direction) {
+        Editor editor = editorManager.getCurrentEditor();
+        int line = editor.getCaretLine() + direction;
+        if (line < 0 || line >= editor.getLineCount()) {
+            return;
+        }
+        int previousCaret = editor.getCaretPosition();
+        editor.setCaretPosition(line, editor.getCaretColumn());
+        editor.addCaret(previousCaret);
+        refreshDisplay();
+    }
+
+    /**
+     * Paints the extra carets of the editor, replacing the previously painted ones.
+     */
+    private void showExtraCarets() {
+        Highlighter highlighter = textArea.getHighlighter();
+        for (Object highlight : extraCaretHighlights) {
+            highlighter.removeHighlight(highlight);
+        }
+        extraCaretHighlights.clear();
+
+        Editor editor = editorManager.getCurrentEditor();
+        if (editor.getCaretCount() == 1) {
+            return;
+        }
+        for (int caret : editor.getCarets()) {
+            if (caret != editor.getCaretPosition() && caret >= displayStart && caret <= displayEnd) {
+                int position = caret - displayStart;
+                try {
+                    extraCaretHighlights.add(highlighter.addHighlight(position, position, EXTRA_CARET_PAINTER));
+                } catch (BadLocationException ex) {
+                    // The display is refreshed from the editor, so the next refresh paints it
+                }
+            }
+        }
+    }
+
+    /**
+     * Underlines the misspelled words found by a spell checking editor, replacing the previously
+     * painted ones. Only the words in the visible part of the text area are painted, so the cost
+     * does not grow with the number of misspellings in the document.
+     */
+    private void showMisspellings() {
+        Highlighter highlighter = textArea.getHighlighter();
+        for (Object highlight : misspellingHighlights) {
+            highlighter.removeHighlight(highlight);
+        }
+        misspellingHighlights.clear();
+
+        if (!(editorManager.getCurrentEditor() instanceof SpellCheckEditor)) {
+            return;
+        }
+        MisspellingSpans misspellings = ((SpellCheckEditor) editorManager.getCurrentEditor()).getMisspellings();
+        Rectangle visible = textArea.getVisibleRect();
+        int first = displayStart + textArea.viewToModel2D(visible.getLocation());
+        int last = displayStart + textArea.viewToModel2D(new Point(visible.x + visible.width, visible.y + visible.height));
+        for (int i = misspellings.indexAfter(first); i < misspellings.size() && misspellings.getStart(i) <= last; i++) {
+            if (misspellings.getStart(i) >= displayStart && misspellings.getEnd(i) <= displayEnd) {
+                try {
+                    misspellingHighlights.add(highlighter.addHighlight(misspellings.getStart(i) - displayStart,
+                            misspellings.getEnd(i) - displayStart, MISSPELLING_PAINTER));
+                } catch (BadLocationException ex) {
+                    // The display is refreshed from the editor, so the next refresh paints it
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the text on the system clipboard at the caret.
+     */
+    private void paste() {
+        try {
+            Object data = Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+            editorManager.getCurrentEditor().addText((String) data);
+            refreshDisplay();
+        } catch (UnsupportedFlavorException | IOException | IllegalStateException ex) {
+            // Nothing to paste when the clipboard holds no text or is unavailable
+        }
+    }
+
+    /**
+     * Asks for a line number and moves the caret to the beginning of that line.
+     */
+    private void goToLine() {
+        Editor editor = editorManager.getCurrentEditor();
+        String input = JOptionPane.showInputDialog(this,
+                "Line number (1-" + editor.getLineCount() + "):", "Go to Line", JOptionPane.PLAIN_MESSAGE);
+        if (input == null) {
+            return;
+        }
+        try {
+            editor.setCaretPosition(Integer.parseInt(input.trim()) - 1, 0);
+            refreshDisplay();
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid line number: " + input,
+                    "Go to Line", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Sets up keyboard and mouse listeners for handling user input.
      */
@@ -94,11 +300,18 @@ public class EditorPanel
                 char c = e.getKeyChar();
 
                 if (!Character.isISOControl(c)) {
+                    cancelPredictions();
                     editorManager.getCurrentEditor().addText(c);
-                    updateDisplay();
+                    refreshDisplay();
 
                     if (editorManager.getCurrentEditor() instanceof SpellCheckEditor) {
-                        predictionTimer.restart();
+                        if (c == ' ') {
+                            // Next-word predictions are quick to look up, so they are shown at once
+                            predictionTimer.stop();
+                            showPredictions();
+                        } else {
+                            predictionTimer.restart();
+                        }
                     }
                 }
             }
@@ -107,6 +320,7 @@ public class EditorPanel
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
                     e.consume();
+                    cancelPredictions();
 
                     if (e.isControlDown()) {
                         // Ctrl+Backspace -> remove word at caret
@@ -119,24 +333,68 @@ public class EditorPanel
                             editorManager.getCurrentEditor().removeLastCharacter();
                         }
                     }
-                    updateDisplay();
+                    refreshDisplay();
+                }
+
+                else if (e.isControlDown() && (e.getKeyCode() == KeyEvent.VK_Z || e.getKeyCode() == KeyEvent.VK_Y)) {
+                    e.consume();
+                    // Ctrl+Z -> undo, Ctrl+Y or Ctrl+Shift+Z -> redo
+                    if (e.getKeyCode() == KeyEvent.VK_Z && !e.isShiftDown()) {
+                        editorManager.getCurrentEditor().undo();
+                    } else {
+                        editorManager.getCurrentEditor().redo();
+                    }
+                    refreshDisplay();
+                }
+
+                else if (e.isControlDown() && e.isAltDown()
+                        && (e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_DOWN)) {
+                    e.consume();
+                    // Ctrl+Alt+Up/Down -> add a caret in the same column of the previous or next line
+                    addCaretOnAdjacentLine(e.getKeyCode() == KeyEvent.VK_UP ? -1 : 1);
+                }
+
+                else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    editorManager.getCurrentEditor().clearExtraCarets();
+                    showExtraCarets();
+                }
+
+                else if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_V) {
+                    e.consume();
+                    // Ctrl+V -> paste the clipboard as a single edit and a single display update
+                    paste();
+                }
+
+                else if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_G) {
+                    e.consume();
+                    // Ctrl+G -> go to line
+                    goToLine();
                 }
 
                 else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
                     e.consume();
                     editorManager.getCurrentEditor().addText('\n');
-                    updateDisplay();
+                    refreshDisplay();
                 }
 
                 else if (e.getKeyCode() == KeyEvent.VK_LEFT ||
                         e.getKeyCode() == KeyEvent.VK_RIGHT ||
                         e.getKeyCode() == KeyEvent.VK_UP ||
-                        e.getKeyCode() == KeyEvent.VK_DOWN) {
+                        e.getKeyCode() == KeyEvent.VK_DOWN ||
+                        e.getKeyCode() == KeyEvent.VK_PAGE_UP ||
+                        e.getKeyCode() == KeyEvent.VK_PAGE_DOWN) {
+                    // Moving past the edge of the shown window moves the window first
+                    int caretPosition = textArea.getCaretPosition();
+                    if ((caretPosition == 0 && displayStart > 0)
+                            || (caretPosition == textArea.getDocument().getLength()
+                            && displayEnd < editorManager.getCurrentEditor().getTextLength())) {
+                        updateDisplay();
+                    }
                 }
 
                 else {
                     int caretPosition = textArea.getCaretPosition();
-                    editorManager.getCurrentEditor().setCaretPosition(caretPosition);
+                    editorManager.getCurrentEditor().setCaretPosition(displayStart + caretPosition);
                 }
             }
         });
@@ -145,7 +403,12 @@ public class EditorPanel
             @Override
             public void mouseClicked(MouseEvent e) {
                 int caretPosition = textArea.getCaretPosition();
-                editorManager.getCurrentEditor().setCaretPosition(caretPosition);
+                editorManager.getCurrentEditor().setCaretPosition(displayStart + caretPosition);
+                if (e.isAltDown()) {
+                    // Alt+Click -> keep the previous caret as an extra caret
+                    editorManager.getCurrentEditor().addCaret(previousCaretPosition);
+                }
+                showExtraCarets();
             }
         });
     }
@@ -162,18 +425,53 @@ public class EditorPanel
     }
 
     /**
-     * Shows word predictions based on the current word being typed.
-     * The predictions are displayed in a popup menu near the caret position.
+     * Looks up the words likely to follow the previous words and word predictions based on the current word
+     * being typed, followed by corrections if the word is misspelled. The lookup runs on a background thread
+     * over a snapshot of the text, so typing never waits for the dictionary, and the suggestions are then
+     * shown on the event dispatch thread unless the text has been edited since.
      */
     private void showPredictions() {
+        cancelPredictions();
         if (!(editorManager.getCurrentEditor() instanceof SpellCheckEditor)) {
             hidePredictions();
             return;
         }
 
         SpellCheckEditor spellEditor = (SpellCheckEditor) editorManager.getCurrentEditor();
-        List<String> predictions = spellEditor.getPredictions(5); // Show max 5 predictions
+        TextSnapshot snapshot = spellEditor.snapshot();
+        int caretPosition = spellEditor.getCaretPosition();
+        long request = predictionRequest;
+        pendingPrediction = predictionExecutor.submit(() -> {
+            // Show max 5 predictions and corrections
+            List<String> predictions = spellEditor.getSuggestions(snapshot, caretPosition, 5);
+            if (!Thread.currentThread().isInterrupted()) {
+                SwingUtilities.invokeLater(() -> {
+                    if (request == predictionRequest && editorManager.getCurrentEditor() == spellEditor) {
+                        pendingPrediction = null;
+                        showPredictions(predictions);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancels the prediction request being looked up, so its result is never shown.
+     */
+    private void cancelPredictions() {
+        predictionRequest++;
+        if (pendingPrediction != null) {
+            pendingPrediction.cancel(true);
+            pendingPrediction = null;
+        }
+    }
 
+    /**
+     * Shows suggestions in a popup menu near the caret position.
+     *
+     * @param predictions the suggestions to show, hiding the popup if there are none
+     */
+    private void showPredictions(List<String> predictions) {
         if (predictions.isEmpty()) {
             hidePredictions();
             return;
@@ -215,7 +513,7 @@ public class EditorPanel
             spellEditor.removeLastCharacter();
         }
         spellEditor.addText(prediction);
-        updateDisplay();
+        refreshDisplay();
     }
 
     /**
@@ -230,18 +528,74 @@ public class EditorPanel
     /**
      * Updates the display to reflect the current state of the editor.
      * This method synchronizes the text area content with the editor content.
+     * A text too long to be shown whole is shown as a window of
+     * {@value #MAX_DISPLAYED_CHARS} characters around the caret.
      */
     public void updateDisplay() {
+        Editor editor = editorManager.getCurrentEditor();
         updatingFromEditor = true;
-        String currentText = editorManager.getCurrentEditor().toString();
-        textArea.setText(currentText);
-
-        int caretPos = editorManager.getCurrentEditor().getCaretPosition();
-        if (caretPos >= 0 && caretPos <= currentText.length()) {
-            textArea.setCaretPosition(caretPos);
+        editor.takePendingChange();
+        int length = editor.getTextLength();
+        int caretPos = Math.max(0, Math.min(editor.getCaretPosition(), length));
+        if (length <= MAX_DISPLAYED_CHARS) {
+            displayStart = 0;
+            displayEnd = length;
         } else {
-            textArea.setCaretPosition(currentText.length());
+            displayEnd = Math.min(length, Math.max(caretPos, MAX_DISPLAYED_CHARS / 2) + MAX_DISPLAYED_CHARS / 2);
+            displayStart = displayEnd - MAX_DISPLAYED_CHARS;
+            for (int i = displayStart; i > 0 && displayStart - i < MAX_LINE_SNAP; i--) {
+                if (editor.charAt(i - 1) == '\n') {
+                    displayStart = i;
+                    break;
+                }
+            }
         }
+        textArea.setText(displayStart == 0 && displayEnd == length
+                ? editor.toString() : editor.subSequence(displayStart, displayEnd).toString());
+        textArea.setCaretPosition(caretPos - displayStart);
         updatingFromEditor = false;
+        showCaretLocation();
+        showExtraCarets();
+        showMisspellings();
+    }
+
+    /**
+     * Refreshes the display after an edit made through the editor.
+     * Only the region reported as changed by the editor is replaced in the text area,
+     * so the cost depends on the size of the edit rather than the size of the document.
+     * The shown window is moved instead when the edit or the caret falls outside it.
+     */
+    public void refreshDisplay() {
+        Editor editor = editorManager.getCurrentEditor();
+        TextChange change = editor.takePendingChange();
+        if (change != null && (change.getStart() < displayStart || change.getOldEnd() > displayEnd)) {
+            updateDisplay();
+            return;
+        }
+
+        updatingFromEditor = true;
+        try {
+            if (change != null) {
+                String replacement = editor.subSequence(change.getStart(), change.getNewEnd()).toString();
+                ((AbstractDocument) textArea.getDocument()).replace(change.getStart() - displayStart,
+                        change.getOldEnd() - change.getStart(), replacement, null);
+                displayEnd += change.getNewEnd() - change.getOldEnd();
+            }
+            int caretPos = editor.getCaretPosition();
+            if (caretPos < displayStart || caretPos > displayEnd
+                    || (displayEnd - displayStart > 2 * MAX_DISPLAYED_CHARS)) {
+                updateDisplay();
+                return;
+            }
+            textArea.setCaretPosition(caretPos - displayStart);
+        } catch (BadLocationException | IllegalArgumentException ex) {
+            updateDisplay();
+            return;
+        } finally {
+            updatingFromEditor = false;
+        }
+        showCaretLocation();
+        showExtraCarets();
+        showMisspellings();
     }
-}
\ No newline at end of file
+}
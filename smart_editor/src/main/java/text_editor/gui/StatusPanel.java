@@ -18,6 +18,9 @@ public class StatusPanel
     /** Progress bar for indicating operation progress */
     private JProgressBar progressBar;
 
+    /** Label for displaying the line and column of the caret */
+    private JLabel caretLabel;
+
     /**
      * Constructs a new StatusPanel.
      * Initializes the status components with default values.
@@ -43,7 +46,11 @@ public class StatusPanel
         JPanel statusTextPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
         statusTextPanel.add(statusLabel);
 
+        caretLabel = new JLabel("Ln 1, Col 1");
+        caretLabel.setFont(new Font(caretLabel.getFont().getName(), Font.PLAIN, 11));
+
         JPanel progressBarPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        progressBarPanel.add(caretLabel);
         progressBarPanel.add(progressBar);
 
         add(statusTextPanel, BorderLayout.WEST);
@@ -81,6 +88,16 @@ public class StatusPanel
         }
     }
 
+    /**
+     * Shows the location of the caret.
+     *
+     * @param line the one-based line of the caret
+     * @param column the one-based column of the caret
+     */
+    public void setCaretLocation(int line, int column) {
+        caretLabel.setText("Ln " + line + ", Col " + column);
+    }
+
     /**
      * Resets the status display to the default "Ready" state.
      */
@@ -0,0 +1,211 @@
+package main.java.text_editor.history;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The EditHistory class keeps the undo and redo stacks of an editor.
+ * Instead of snapshots of the whole text it stores {@link EditOperation}s holding only the
+ * characters each edit removed and inserted. Consecutive keystrokes are merged into a single
+ * operation, and the oldest operations are dropped once the history exceeds its limits,
+ * so memory use stays bounded no matter how long the editing session is.
+ *
+ * @author Ugnius Teišerskis
+ */
+public class EditHistory {
+
+    /** Default maximum number of operations kept in the history */
+    public static final int DEFAULT_MAX_OPERATIONS = 1000;
+
+    /** Default maximum number of characters kept in the history */
+    public static final int DEFAULT_MAX_CHARACTERS = 1 << 20;
+
+    /** Operations that can be undone, most recent first */
+    private final Deque<EditOperation> undoStack = new ArrayDeque<>();
+
+    /** Operations that can be redone, most recently undone first */
+    private final Deque<EditOperation> redoStack = new ArrayDeque<>();
+
+    /** Maximum number of operations kept in both stacks together */
+    private final int maxOperations;
+
+    /** Maximum number of characters kept in both stacks together */
+    private final int maxCharacters;
+
+    /** Number of characters currently kept in both stacks */
+    private long characterCount;
+
+    /** The operation being collected between {@link #beginOperation} and {@link #endOperation}, or null */
+    private EditOperation openOperation;
+
+    /**
+     * Default constructor that creates a history with the default limits.
+     */
+    public EditHistory() {
+        this(DEFAULT_MAX_OPERATIONS, DEFAULT_MAX_CHARACTERS);
+    }
+
+    /**
+     * Constructs a history with the specified limits.
+     *
+     * @param maxOperations the maximum number of operations to keep
+     * @param maxCharacters the maximum number of removed and inserted characters to keep
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public EditHistory(int maxOperations, int maxCharacters) {
+        if (maxOperations <= 0 || maxCharacters <= 0) {
+            throw new IllegalArgumentException("History limits must be positive.");
+        }
+        this.maxOperations = maxOperations;
+        this.maxCharacters = maxCharacters;
+    }
+
+    /**
+     * Records a single replacement as an operation of its own, or merges it into the
+     * previous operation when both come from consecutive keystrokes of the same kind.
+     * Any redoable operations are discarded.
+     *
+     * @param kind the kind of action that produced the replacement
+     * @param offset the offset of the replacement
+     * @param removed the characters removed at the offset
+     * @param inserted the characters inserted at the offset
+     * @param caretBefore the caret position before the replacement
+     * @param caretAfter the caret position after the replacement
+     */
+    public void record(EditOperation.Kind kind, int offset, CharSequence removed, CharSequence inserted,
+                       int caretBefore, int caretAfter) {
+        if (openOperation != null) {
+            openOperation.addReplacement(offset, removed, inserted);
+            characterCount += removed.length() + inserted.length();
+            return;
+        }
+
+        clearRedo();
+        EditOperation last = undoStack.peekFirst();
+        if (last != null && last.coalesce(kind, offset, removed, inserted, caretAfter)) {
+            characterCount += removed.length() + inserted.length();
+        } else {
+            EditOperation operation = new EditOperation(kind, caretBefore);
+            operation.addReplacement(offset, removed, inserted);
+            operation.setCaretAfter(caretAfter);
+            push(operation);
+        }
+        trim();
+    }
+
+    /**
+     * Starts collecting several replacements into one operation, so they are undone together.
+     * Calls to {@link #record} until {@link #endOperation(int)} add to this operation.
+     *
+     * @param caretBefore the caret position before the first replacement
+     */
+    public void beginOperation(int caretBefore) {
+        if (openOperation == null) {
+            clearRedo();
+            openOperation = new EditOperation(EditOperation.Kind.OTHER, caretBefore);
+        }
+    }
+
+    /**
+     * Finishes the operation started by {@link #beginOperation(int)} and adds it to the history.
+     * An operation without replacements is discarded.
+     *
+     * @param caretAfter the caret position after the last replacement
+     */
+    public void endOperation(int caretAfter) {
+        EditOperation operation = openOperation;
+        openOperation = null;
+        if (operation != null && operation.getReplacementCount() > 0) {
+            operation.setCaretAfter(caretAfter);
+            undoStack.addFirst(operation);
+            trim();
+        }
+    }
+
+    /**
+     * Checks whether there is an operation to undo.
+     *
+     * @return true if an operation can be undone, false otherwise
+     */
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    /**
+     * Checks whether there is an operation to redo.
+     *
+     * @return true if an operation can be redone, false otherwise
+     */
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    /**
+     * Takes the most recent operation off the undo stack and moves it to the redo stack.
+     * The caller is responsible for reverting its replacements.
+     *
+     * @return the operation to undo, or null if there is none
+     */
+    public EditOperation undo() {
+        EditOperation operation = undoStack.pollFirst();
+        if (operation != null) {
+            redoStack.addFirst(operation);
+        }
+        return operation;
+    }
+
+    /**
+     * Takes the most recently undone operation off the redo stack and moves it back to the undo stack.
+     * The caller is responsible for applying its replacements again.
+     *
+     * @return the operation to redo, or null if there is none
+     */
+    public EditOperation redo() {
+        EditOperation operation = redoStack.pollFirst();
+        if (operation != null) {
+            undoStack.addFirst(operation);
+        }
+        return operation;
+    }
+
+    /**
+     * Removes all operations from the history.
+     */
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        openOperation = null;
+        characterCount = 0;
+    }
+
+    /**
+     * Adds a new operation on top of the undo stack.
+     *
+     * @param operation the operation to add
+     */
+    private void push(EditOperation operation) {
+        undoStack.addFirst(operation);
+        characterCount += operation.size();
+    }
+
+    /**
+     * Discards all redoable operations.
+     */
+    private void clearRedo() {
+        for (EditOperation operation : redoStack) {
+            characterCount -= operation.size();
+        }
+        redoStack.clear();
+    }
+
+    /**
+     * Drops the oldest operations until the history fits its limits.
+     * The most recent operation is always kept, even if it alone exceeds the character limit.
+     */
+    private void trim() {
+        while (undoStack.size() > 1
+                && (undoStack.size() + redoStack.size() > maxOperations || characterCount > maxCharacters)) {
+            characterCount -= undoStack.pollLast().size();
+        }
+    }
+}
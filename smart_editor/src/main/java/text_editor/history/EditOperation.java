@@ -0,0 +1,227 @@
+package main.java.text_editor.history;
+
+import java.util.Arrays;
+
+/**
+ * The EditOperation class records one undoable step of editing.
+ * A step consists of one or more replacements, each storing only the characters it removed
+ * and inserted, so undoing or redoing it costs time proportional to the size of the edit
+ * instead of the size of the document.
+ *
+ * <p>Replacements are kept in the order they were applied. Each offset refers to the text
+ * as it was right before that replacement, so redoing applies them in order and undoing
+ * applies their inverses in reverse order.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class EditOperation {
+
+    /** Maximum number of characters a merged operation may grow to */
+    private static final int MAX_COALESCED_LENGTH = 256;
+
+    /**
+     * The Kind enum tells which kind of user action produced an operation.
+     * Only consecutive operations of the same kind are merged together.
+     */
+    public enum Kind {
+        /** Characters typed one at a time */
+        TYPING,
+        /** Characters removed one at a time before the caret */
+        DELETING,
+        /** Any other edit, which is never merged */
+        OTHER
+    }
+
+    /** The kind of action that produced this operation */
+    private final Kind kind;
+
+    /** The caret position before the operation was applied */
+    private final int caretBefore;
+
+    /** The caret position after the operation was applied */
+    private int caretAfter;
+
+    /** Number of replacements in this operation */
+    private int count;
+
+    /** Offset of each replacement */
+    private int[] offsets;
+
+    /** Characters removed by each replacement */
+    private CharSequence[] removed;
+
+    /** Characters inserted by each replacement */
+    private CharSequence[] inserted;
+
+    /**
+     * Constructs an empty operation.
+     *
+     * @param kind the kind of action that produced the operation
+     * @param caretBefore the caret position before the operation
+     */
+    public EditOperation(Kind kind, int caretBefore) {
+        this.kind = kind;
+        this.caretBefore = caretBefore;
+        this.caretAfter = caretBefore;
+        this.offsets = new int[1];
+        this.removed = new CharSequence[1];
+        this.inserted = new CharSequence[1];
+    }
+
+    /**
+     * Appends a replacement to this operation.
+     *
+     * @param offset the offset of the replacement in the text right before it was applied
+     * @param removedChars the characters removed at the offset
+     * @param insertedChars the characters inserted at the offset
+     */
+    public void addReplacement(int offset, CharSequence removedChars, CharSequence insertedChars) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            removed = Arrays.copyOf(removed, count * 2);
+            inserted = Arrays.copyOf(inserted, count * 2);
+        }
+        offsets[count] = offset;
+        removed[count] = removedChars;
+        inserted[count] = insertedChars;
+        count++;
+    }
+
+    /**
+     * Tries to merge a single replacement into this operation.
+     * Typed characters are merged when they directly follow the previously typed ones and do not
+     * start a new word, deleted characters are merged when they directly precede the previously
+     * deleted ones. Merging stops once the operation reaches a fixed length.
+     *
+     * @param kind the kind of action that produced the replacement
+     * @param offset the offset of the replacement
+     * @param removedChars the characters removed at the offset
+     * @param insertedChars the characters inserted at the offset
+     * @param newCaretAfter the caret position after the replacement
+     * @return true if the replacement was merged, false if it needs an operation of its own
+     */
+    boolean coalesce(Kind kind, int offset, CharSequence removedChars, CharSequence insertedChars, int newCaretAfter) {
+        if (kind != this.kind || kind == Kind.OTHER || count != 1
+                || removed[0].length() + inserted[0].length() >= MAX_COALESCED_LENGTH) {
+            return false;
+        }
+
+        if (kind == Kind.TYPING) {
+            CharSequence typed = inserted[0];
+            boolean adjacent = offset == offsets[0] + typed.length() && removedChars.length() == 0;
+            boolean startsWord = insertedChars.length() > 0
+                    && Character.isWhitespace(typed.charAt(typed.length() - 1))
+                    && !Character.isWhitespace(insertedChars.charAt(0));
+            if (!adjacent || startsWord) {
+                return false;
+            }
+            inserted[0] = toBuilder(typed).append(insertedChars);
+        } else {
+            if (offset + removedChars.length() != offsets[0] || insertedChars.length() != 0) {
+                return false;
+            }
+            removed[0] = toBuilder(removedChars).append(removed[0]);
+            offsets[0] = offset;
+        }
+        caretAfter = newCaretAfter;
+        return true;
+    }
+
+    /**
+     * Gets the kind of action that produced this operation.
+     *
+     * @return the kind of the operation
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the caret position before the operation was applied.
+     *
+     * @return the caret position to restore on undo
+     */
+    public int getCaretBefore() {
+        return caretBefore;
+    }
+
+    /**
+     * Gets the caret position after the operation was applied.
+     *
+     * @return the caret position to restore on redo
+     */
+    public int getCaretAfter() {
+        return caretAfter;
+    }
+
+    /**
+     * Sets the caret position after the operation was applied.
+     *
+     * @param caretAfter the caret position to restore on redo
+     */
+    public void setCaretAfter(int caretAfter) {
+        this.caretAfter = caretAfter;
+    }
+
+    /**
+     * Gets the number of replacements in this operation.
+     *
+     * @return the number of replacements
+     */
+    public int getReplacementCount() {
+        return count;
+    }
+
+    /**
+     * Gets the offset of a replacement.
+     *
+     * @param index the index of the replacement
+     * @return the offset of the replacement
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Gets the characters removed by a replacement.
+     *
+     * @param index the index of the replacement
+     * @return the removed characters
+     */
+    public CharSequence getRemoved(int index) {
+        return removed[index];
+    }
+
+    /**
+     * Gets the characters inserted by a replacement.
+     *
+     * @param index the index of the replacement
+     * @return the inserted characters
+     */
+    public CharSequence getInserted(int index) {
+        return inserted[index];
+    }
+
+    /**
+     * Gets the number of characters held by this operation, used to bound the history size.
+     *
+     * @return the total number of removed and inserted characters
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size += removed[i].length() + inserted[i].length();
+        }
+        return size;
+    }
+
+    /**
+     * Converts a character sequence into a builder that can be appended to.
+     *
+     * @param chars the characters to convert
+     * @return the characters as a builder
+     */
+    private static StringBuilder toBuilder(CharSequence chars) {
+        return chars instanceof StringBuilder ? (StringBuilder) chars : new StringBuilder(chars);
+    }
+}
@@ -1,5 +1,7 @@
 package main.java.text_editor.interfaces;
 
+import main.java.text_editor.editors.EditBatch;
+
 /**
  * The Editable interface defines the basic text editing capabilities.
  * Classes implementing this interface provide functionality for adding and removing text.
@@ -19,4 +21,11 @@ public interface Editable {
      * Removes the last character from the text.
      */
     void removeLastCharacter();
+
+    /**
+     * Applies a batch of insertions, deletions and replacements as a single edit.
+     *
+     * @param batch the edits to apply
+     */
+    void applyEdits(EditBatch batch);
 }
@@ -0,0 +1,444 @@
+package main.java.text_editor.prediction;
+
+import main.java.text_editor.search.WordTokenizer;
+
+import java.util.*;
+
+/**
+ * The NGramModel class predicts the next word from the one or two words typed before it,
+ * using how often each word followed them in the documents the model was trained on.
+ * Words following the last two words are ranked by their relative frequency after them, and words
+ * following only the last word by their relative frequency after it times {@value #BACKOFF}.
+ *
+ * <p>The model is built to stay small with millions of word pairs and triples. The words before
+ * a prediction are not stored but hashed to a single int, so a lookup hashes the typed words
+ * in place and binary searches the sorted hashes. The words following each hash are stored in
+ * decreasing order of their counts, each as a single int holding the id of the word and its count
+ * quantized to one byte on a logarithmic scale, which keeps the ratios between counts to within
+ * ten percent. Two different contexts may share
+ * a hash, which only adds unlikely predictions. A built model is immutable and can be used by
+ * several threads.</p>
+ *
+ * <p>Words are read with a {@link WordTokenizer} and compared in lower case. Punctuation before
+ * or after a word breaks the sequence of words, so no prediction spans the end of a sentence.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class NGramModel {
+
+    /** Ratio between the counts of consecutive quantized values */
+    private static final double QUANTIZATION_BASE = 1.1;
+
+    /** Largest quantized count */
+    private static final int MAX_QUANTIZED_COUNT = 255;
+
+    /** Factor applied to the frequencies of words predicted from the last word alone */
+    private static final double BACKOFF = 0.4;
+
+    /** The backoff factor as a difference of quantized counts */
+    private static final int BACKOFF_PENALTY = (int) Math.round(-Math.log(BACKOFF) / Math.log(QUANTIZATION_BASE));
+
+    /** Number of bits of a word id, limiting the size of the vocabulary */
+    private static final int WORD_ID_BITS = 24;
+
+    /** Mask of the word id in an entry of {@link #nextWords} */
+    private static final int WORD_ID_MASK = (1 << WORD_ID_BITS) - 1;
+
+    /** The words of the vocabulary in lower case, indexed by their ids */
+    private final String[] words;
+
+    /** The distinct context hashes, sorted */
+    private final int[] contexts;
+
+    /** Offset of the following words of each context in {@link #nextWords}, followed by the total count */
+    private final int[] contextOffsets;
+
+    /** The quantized sum of the counts of the following words of each context */
+    private final byte[] contextCounts;
+
+    /** The words following each context, most frequent first, as a quantized count above the word id */
+    private final int[] nextWords;
+
+    /**
+     * Constructs a model from its arrays.
+     *
+     * @param words the vocabulary
+     * @param contexts the sorted context hashes
+     * @param contextOffsets the offsets of the following words of each context
+     * @param contextCounts the quantized total counts of the contexts
+     * @param nextWords the following words with their quantized counts
+     */
+    private NGramModel(String[] words, int[] contexts, int[] contextOffsets, byte[] contextCounts, int[] nextWords) {
+        this.words = words;
+        this.contexts = contexts;
+        this.contextOffsets = contextOffsets;
+        this.contextCounts = contextCounts;
+        this.nextWords = nextWords;
+    }
+
+    /**
+     * Predicts the words most likely to follow the previous words and starting with a prefix.
+     *
+     * @param beforePrevious the word before the previous word, or null if it is unknown
+     * @param previous the word before the predicted one
+     * @param prefix the typed beginning of the predicted word, compared in lower case, empty for any word
+     * @param maxPredictions the maximum number of predictions to return
+     * @return the predicted words in lower case, most likely first
+     */
+    public List<String> predict(CharSequence beforePrevious, CharSequence previous, CharSequence prefix,
+                                int maxPredictions) {
+        List<String> predictions = new ArrayList<>();
+        int longContext = beforePrevious != null
+                ? Arrays.binarySearch(contexts, hashContext(beforePrevious, previous)) : -1;
+        int shortContext = Arrays.binarySearch(contexts, hashContext(null, previous));
+        int i = longContext >= 0 ? nextMatch(contextOffsets[longContext], longContext, prefix) : -1;
+        int j = shortContext >= 0 ? nextMatch(contextOffsets[shortContext], shortContext, prefix) : -1;
+
+        // Both lists are in decreasing order of frequency, so merging them keeps the predictions in order
+        while ((i >= 0 || j >= 0) && predictions.size() < maxPredictions) {
+            boolean takeLong = j < 0 || (i >= 0
+                    && score(i, longContext, 0) >= score(j, shortContext, BACKOFF_PENALTY));
+            String word = words[nextWords[takeLong ? i : j] & WORD_ID_MASK];
+            if (!predictions.contains(word)) {
+                predictions.add(word);
+            }
+            if (takeLong) {
+                i = nextMatch(i + 1, longContext, prefix);
+            } else {
+                j = nextMatch(j + 1, shortContext, prefix);
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Gets the number of word pairs and triples in the model.
+     *
+     * @return the number of stored following words over all contexts
+     */
+    public int size() {
+        return nextWords.length;
+    }
+
+    /**
+     * Gets the quantized count of a count, the logarithm of the count in base {@value #QUANTIZATION_BASE}.
+     *
+     * @param count the count, at least one
+     * @return the quantized count between 0 and {@value #MAX_QUANTIZED_COUNT}
+     */
+    static int quantize(long count) {
+        int quantized = (int) Math.round(Math.log(count) / Math.log(QUANTIZATION_BASE));
+        return Math.min(quantized, MAX_QUANTIZED_COUNT);
+    }
+
+    /**
+     * Finds the next following word of a context that starts with a prefix.
+     *
+     * @param from the index in {@link #nextWords} to start from
+     * @param context the index of the context
+     * @param prefix the prefix of the word
+     * @return the index of the word, or -1 if no further word of the context starts with the prefix
+     */
+    private int nextMatch(int from, int context, CharSequence prefix) {
+        for (int i = from; i < contextOffsets[context + 1]; i++) {
+            if (startsWith(words[nextWords[i] & WORD_ID_MASK], prefix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the score of a following word, the logarithm of its relative frequency after its context.
+     *
+     * @param index the index of the word in {@link #nextWords}
+     * @param context the index of the context
+     * @param penalty the quantized penalty of the context
+     * @return the score, higher for more likely words
+     */
+    private int score(int index, int context, int penalty) {
+        return (nextWords[index] >>> WORD_ID_BITS) - (contextCounts[context] & 0xFF) - penalty;
+    }
+
+    /**
+     * Checks whether a word starts with a prefix, ignoring the case of the prefix.
+     *
+     * @param word the word in lower case
+     * @param prefix the prefix
+     * @return true if the word starts with the prefix
+     */
+    private static boolean startsWith(String word, CharSequence prefix) {
+        if (word.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (word.charAt(i) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the hash of a context of one or two words.
+     *
+     * @param beforePrevious the first word of a two-word context, or null for a one-word context
+     * @param previous the last word of the context
+     * @return the hash of the context
+     */
+    private static int hashContext(CharSequence beforePrevious, CharSequence previous) {
+        int hash = beforePrevious == null ? 1 : hashWord(beforePrevious) * 31 + 2;
+        hash = (hash * 31 + hashWord(previous)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Computes the hash of a word converted to lower case.
+     *
+     * @param word the word
+     * @return the hash of the word
+     */
+    private static int hashWord(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(word.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * The Builder class counts the word pairs and triples of documents and builds a model from them.
+     * Counting uses an open-addressing table of primitive keys, so training allocates only for new words.
+     * The vocabulary and the number of distinct keys are capped, and the rarest keys are pruned when
+     * the table is full, so the memory used does not grow with the amount of text.
+     */
+    public static final class Builder {
+
+        /** Smallest capacity of the table of counts */
+        private static final int MIN_CAPACITY = 1024;
+
+        /** Largest number of distinct keys counted before the rarest ones are pruned */
+        private static final int MAX_KEYS = 1 << 21;
+
+        /** Largest number of words in the vocabulary */
+        private static final int MAX_VOCABULARY = 1 << 20;
+
+        /** The ids of the words seen so far */
+        private final Map<String, Integer> wordIds = new HashMap<>();
+
+        /** The words seen so far, indexed by their ids */
+        private final List<String> words = new ArrayList<>();
+
+        /** The counted keys, each a context hash in the high half and a word id in the low half */
+        private long[] keys = new long[MIN_CAPACITY];
+
+        /** The count of each key, with zero for empty slots; the length is a power of two */
+        private int[] keyCounts = new int[MIN_CAPACITY];
+
+        /** Number of distinct keys */
+        private int size;
+
+        /**
+         * Counts the word pairs and triples of a document.
+         *
+         * @param chunks the chunks of the text of the document, in order
+         * @return this builder
+         */
+        public Builder addText(Iterator<CharSequence> chunks) {
+            WordTokenizer tokens = new WordTokenizer(chunks, 0);
+            String beforePrevious = null;
+            String previous = null;
+            while (tokens.next()) {
+                if (!tokens.hasCleanWord() || tokens.getCleanStart() > tokens.getWordStart()) {
+                    beforePrevious = null;
+                    previous = null;
+                }
+                if (!tokens.hasCleanWord()) {
+                    continue;
+                }
+
+                String word = tokens.getCleanWord().toString().toLowerCase();
+                int id = wordId(word);
+                if (id < 0) {
+                    // The vocabulary is full, so the word cannot be predicted or start a context
+                    beforePrevious = null;
+                    previous = null;
+                    continue;
+                }
+                if (previous != null) {
+                    count(hashContext(null, previous), id);
+                    if (beforePrevious != null) {
+                        count(hashContext(beforePrevious, previous), id);
+                    }
+                }
+                beforePrevious = previous;
+                previous = word;
+
+                if (tokens.getCleanEnd() < tokens.getWordEnd()) {
+                    beforePrevious = null;
+                    previous = null;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Builds a model from the counts so far.
+         *
+         * @return the model
+         */
+        public NGramModel build() {
+            // Sort by context, then by decreasing quantized count, then by word id
+            long[] entries = new long[size];
+            int entryCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keyCounts[i] > 0) {
+                    long order = MAX_QUANTIZED_COUNT - quantize(keyCounts[i]);
+                    entries[entryCount++] = (keys[i] & 0xFFFFFFFF00000000L) | (order << WORD_ID_BITS) | (int) keys[i];
+                }
+            }
+            Arrays.sort(entries);
+
+            int distinctContexts = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (i == 0 || (int) (entries[i] >> 32) != (int) (entries[i - 1] >> 32)) {
+                    distinctContexts++;
+                }
+            }
+            int[] contexts = new int[distinctContexts];
+            int[] contextOffsets = new int[distinctContexts + 1];
+            int[] nextWords = new int[entryCount];
+            int contextIndex = -1;
+            for (int i = 0; i < entryCount; i++) {
+                int context = (int) (entries[i] >> 32);
+                if (contextIndex < 0 || context != contexts[contextIndex]) {
+                    contexts[++contextIndex] = context;
+                    contextOffsets[contextIndex] = i;
+                }
+                int count = MAX_QUANTIZED_COUNT - (int) (entries[i] >>> WORD_ID_BITS & 0xFF);
+                nextWords[i] = count << WORD_ID_BITS | (int) entries[i] & WORD_ID_MASK;
+            }
+            contextOffsets[distinctContexts] = entryCount;
+
+            long[] totals = new long[distinctContexts];
+            for (int i = 0; i < keys.length; i++) {
+                if (keyCounts[i] > 0) {
+                    totals[Arrays.binarySearch(contexts, (int) (keys[i] >> 32))] += keyCounts[i];
+                }
+            }
+            byte[] contextCounts = new byte[distinctContexts];
+            for (int i = 0; i < distinctContexts; i++) {
+                contextCounts[i] = (byte) quantize(totals[i]);
+            }
+            return new NGramModel(words.toArray(new String[0]), contexts, contextOffsets, contextCounts, nextWords);
+        }
+
+        /**
+         * Gets the id of a word, giving the next id to a new word.
+         *
+         * @param word the word in lower case
+         * @return the id of the word, or -1 if the vocabulary is full
+         */
+        private int wordId(String word) {
+            Integer id = wordIds.get(word);
+            if (id != null) {
+                return id;
+            }
+            if (words.size() == MAX_VOCABULARY) {
+                return -1;
+            }
+            wordIds.put(word, words.size());
+            words.add(word);
+            return words.size() - 1;
+        }
+
+        /**
+         * Counts a word following a context.
+         *
+         * @param context the hash of the context
+         * @param wordId the id of the following word
+         */
+        private void count(int context, int wordId) {
+            long key = ((long) context << 32) | wordId;
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keyCounts[slot] > 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keyCounts[slot] > 0) {
+                if (keyCounts[slot] < Integer.MAX_VALUE) {
+                    keyCounts[slot]++;
+                }
+                return;
+            }
+            keys[slot] = key;
+            keyCounts[slot] = 1;
+            size++;
+            if (size > MAX_KEYS) {
+                prune();
+            } else if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        /**
+         * Drops the keys counted least often until at most half of {@value #MAX_KEYS} keys are left,
+         * so the table never grows past twice that many slots. The keys counted once go first,
+         * then those counted twice, and so on. A dropped key is counted again from one if it recurs.
+         */
+        private void prune() {
+            for (int threshold = 1; size > MAX_KEYS / 2; threshold++) {
+                long[] oldKeys = keys;
+                int[] oldCounts = keyCounts;
+                keys = new long[oldKeys.length];
+                keyCounts = new int[oldKeys.length];
+                size = 0;
+                int mask = keys.length - 1;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldCounts[i] > threshold) {
+                        int slot = slot(oldKeys[i], mask);
+                        while (keyCounts[slot] > 0) {
+                            slot = (slot + 1) & mask;
+                        }
+                        keys[slot] = oldKeys[i];
+                        keyCounts[slot] = oldCounts[i];
+                        size++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Doubles the capacity of the table of counts.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = keyCounts;
+            keys = new long[oldKeys.length * 2];
+            keyCounts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] > 0) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (keyCounts[slot] > 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    keyCounts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        /**
+         * Gets the first slot of the probe sequence of a key.
+         *
+         * @param key the key
+         * @param mask the capacity of the table minus one
+         * @return the slot
+         */
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package main.java.text_editor.prediction;
+
+import java.util.*;
+
+/**
+ * The SpellingCorrector class suggests dictionary words close to a misspelled word.
+ * Candidates are words within an edit distance of two, where inserting, deleting or replacing
+ * a character, or swapping two adjacent characters, each count as one edit.
+ *
+ * <p>The corrector uses the symmetric delete method. Every word of the dictionary is indexed under
+ * each variant obtained by deleting up to two of its characters, and a misspelled word is looked up
+ * under its own variants, so only the few words sharing a variant with it are compared, whatever the
+ * size of the dictionary. Only the first {@value #PREFIX_LENGTH} characters of a word are used for the
+ * variants, which keeps their number bounded for long words. Variants are stored as hashes in sorted
+ * arrays, and hash collisions only add candidates that the exact distance check then rejects.</p>
+ *
+ * <p>A corrector is immutable once built and can be used by several threads.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class SpellingCorrector {
+
+    /** The largest edit distance of a suggestion */
+    public static final int MAX_DISTANCE = 2;
+
+    /** Number of leading characters of a word used for its variants */
+    private static final int PREFIX_LENGTH = 7;
+
+    /** The words of the dictionary in lower case, without duplicates */
+    private final String[] words;
+
+    /** The distinct hashes of all variants, sorted */
+    private final int[] variantHashes;
+
+    /** Offset of the words of each variant hash in {@link #variantWords}, followed by the total count */
+    private final int[] variantOffsets;
+
+    /** The indexes of the words having each variant hash, grouped by hash */
+    private final int[] variantWords;
+
+    /**
+     * Constructs a corrector over the specified words.
+     *
+     * @param words the words of the dictionary
+     */
+    public SpellingCorrector(Collection<String> words) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                distinct.add(word.toLowerCase());
+            }
+        }
+        this.words = distinct.toArray(new String[0]);
+
+        // Pairs of a variant hash in the high half and a word index in the low half, sorted by hash
+        long[] pairs = new long[Math.max(16, this.words.length * 8)];
+        int pairCount = 0;
+        int[] hashes = new int[variantCount(PREFIX_LENGTH)];
+        for (int i = 0; i < this.words.length; i++) {
+            int count = variantHashes(this.words[i], hashes);
+            if (pairCount + count > pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, pairCount + count));
+            }
+            for (int j = 0; j < count; j++) {
+                pairs[pairCount++] = ((long) hashes[j] << 32) | i;
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        int distinctHashes = 0;
+        for (int i = 0; i < pairCount; i++) {
+            if (i == 0 || (int) (pairs[i] >> 32) != (int) (pairs[i - 1] >> 32)) {
+                distinctHashes++;
+            }
+        }
+        variantHashes = new int[distinctHashes];
+        variantOffsets = new int[distinctHashes + 1];
+        variantWords = new int[pairCount];
+        int hashIndex = -1;
+        for (int i = 0; i < pairCount; i++) {
+            int hash = (int) (pairs[i] >> 32);
+            if (hashIndex < 0 || hash != variantHashes[hashIndex]) {
+                variantHashes[++hashIndex] = hash;
+                variantOffsets[hashIndex] = i;
+            }
+            variantWords[i] = (int) pairs[i];
+        }
+        variantOffsets[distinctHashes] = pairCount;
+    }
+
+    /**
+     * Suggests the dictionary words closest to a word, nearest first.
+     * Words at the same distance are ordered as in the dictionary.
+     *
+     * @param word the misspelled word, compared in lower case
+     * @param maxSuggestions the maximum number of suggestions to return
+     * @return the words within an edit distance of {@value #MAX_DISTANCE}, at most maxSuggestions of them
+     */
+    public List<String> suggest(CharSequence word, int maxSuggestions) {
+        String lowerWord = word.toString().toLowerCase();
+        if (lowerWord.isEmpty() || maxSuggestions <= 0) {
+            return new ArrayList<>();
+        }
+
+        int[] hashes = new int[variantCount(PREFIX_LENGTH)];
+        int count = variantHashes(lowerWord, hashes);
+        int[] candidates = new int[64];
+        int candidateCount = 0;
+        for (int i = 0; i < count; i++) {
+            int found = Arrays.binarySearch(variantHashes, hashes[i]);
+            if (found < 0) {
+                continue;
+            }
+            for (int j = variantOffsets[found]; j < variantOffsets[found + 1]; j++) {
+                int index = variantWords[j];
+                if (Math.abs(words[index].length() - lowerWord.length()) <= MAX_DISTANCE) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = index;
+                }
+            }
+        }
+
+        // Candidates in dictionary order are grouped by distance, which gives the order of the suggestions
+        Arrays.sort(candidates, 0, candidateCount);
+        List<List<String>> byDistance = new ArrayList<>();
+        for (int distance = 0; distance <= MAX_DISTANCE; distance++) {
+            byDistance.add(new ArrayList<>());
+        }
+        int[][] rows = new int[3][lowerWord.length() + MAX_DISTANCE + 1];
+        for (int i = 0; i < candidateCount; i++) {
+            if (i > 0 && candidates[i] == candidates[i - 1]) {
+                continue;
+            }
+            String candidate = words[candidates[i]];
+            int distance = distance(candidate, lowerWord, rows);
+            if (distance <= MAX_DISTANCE) {
+                byDistance.get(distance).add(candidate);
+            }
+        }
+
+        List<String> suggestions = new ArrayList<>();
+        for (List<String> group : byDistance) {
+            for (int i = 0; i < group.size() && suggestions.size() < maxSuggestions; i++) {
+                suggestions.add(group.get(i));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the number of words in the dictionary.
+     *
+     * @return the number of distinct words
+     */
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * Computes the hashes of the variants of a word, which are its prefix with up to
+     * {@value #MAX_DISTANCE} characters deleted, without creating the variants.
+     *
+     * @param word the word in lower case
+     * @param hashes the array to store the distinct hashes in
+     * @return the number of distinct hashes stored
+     */
+    private static int variantHashes(String word, int[] hashes) {
+        int length = Math.min(word.length(), PREFIX_LENGTH);
+        int count = 0;
+        hashes[count++] = hash(word, length, -1, -1);
+        for (int i = 0; i < length; i++) {
+            hashes[count++] = hash(word, length, i, -1);
+            for (int j = i + 1; j < length; j++) {
+                hashes[count++] = hash(word, length, i, j);
+            }
+        }
+
+        // Deleting either of two equal adjacent characters gives the same variant
+        Arrays.sort(hashes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || hashes[i] != hashes[distinct - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Gets the largest number of variants of a prefix.
+     *
+     * @param length the length of the prefix
+     * @return the number of ways to delete up to two characters, plus one for the prefix itself
+     */
+    private static int variantCount(int length) {
+        return 1 + length + length * (length - 1) / 2;
+    }
+
+    /**
+     * Computes the hash of a prefix of a word with up to two characters left out.
+     *
+     * @param word the word
+     * @param length the length of the prefix
+     * @param skip1 the offset of the first character to leave out, or -1
+     * @param skip2 the offset of the second character to leave out, or -1
+     * @return the hash of the variant
+     */
+    private static int hash(String word, int length, int skip1, int skip2) {
+        int hash = 0;
+        int kept = 0;
+        for (int i = 0; i < length; i++) {
+            if (i != skip1 && i != skip2) {
+                hash = 31 * hash + word.charAt(i);
+                kept++;
+            }
+        }
+        hash = (hash * 31 + kept) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Computes the edit distance between two words, counting a swap of adjacent characters as one edit.
+     * The computation stops early once the distance is known to exceed {@value #MAX_DISTANCE}.
+     *
+     * @param a the first word
+     * @param b the second word
+     * @param rows three scratch rows longer than the second word
+     * @return the edit distance, or {@value #MAX_DISTANCE} + 1 if it is larger than {@value #MAX_DISTANCE}
+     */
+    private static int distance(String a, String b, int[][] rows) {
+        if (Math.abs(a.length() - b.length()) > MAX_DISTANCE) {
+            return MAX_DISTANCE + 1;
+        }
+        int[] beforePrevious = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > MAX_DISTANCE) {
+                return MAX_DISTANCE + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], MAX_DISTANCE + 1);
+    }
+}
@@ -5,15 +5,47 @@ import java.util.*;
 
 /**
  * The WordPredictor class provides word prediction functionality based on a vocabulary.
- * It suggests words that start with a given prefix.
+ * It suggests words that start with a given prefix, the words used most often first.
+ *
+ * <p>The vocabulary is kept in a radix trie of the words in lower case, where each edge holds the
+ * characters shared by all words below it. Every node also keeps the first {@value #TOP_K} words
+ * below it in prediction order, so predicting follows the prefix down the trie and copies the
+ * stored words, whatever the size of the vocabulary.</p>
+ *
+ * <p>Each word has a usage score, raised whenever the word is learned from the text being typed.
+ * Uses fade with a half-life of {@value #HALF_LIFE} learned words, which is done by making each new
+ * use weigh more than the previous one instead of lowering every score. Words with the same score,
+ * such as words never used, are predicted in alphabetical order. A predictor may be shared by
+ * several editors, so its methods are synchronized.</p>
  *
  * @author Ugnius Teišerskis
  */
 public class WordPredictor
         implements Serializable {
 
-    /** Set of words used for predictions, sorted case-insensitively */
-    private final Set<String> vocabulary;
+    /** Number of best words kept in every node of the trie */
+    private static final int TOP_K = 10;
+
+    /** Number of learned words after which the weight of a use is halved */
+    private static final int HALF_LIFE = 1000;
+
+    /** Factor by which the weight of a use grows with each learned word */
+    private static final double GROWTH = Math.pow(2, 1.0 / HALF_LIFE);
+
+    /** Largest weight of a use before all scores are scaled down */
+    private static final double MAX_WEIGHT = 1e100;
+
+    /** Order in which words are predicted: higher scores first, then alphabetically */
+    private static final Comparator<Node> PREDICTION_ORDER = (a, b) -> {
+        int order = Double.compare(b.score, a.score);
+        return order != 0 ? order : String.CASE_INSENSITIVE_ORDER.compare(a.word, b.word);
+    };
+
+    /** The root of the trie, standing for the empty prefix */
+    private Node root = new Node("");
+
+    /** The score added by the next learned word */
+    private double weight = 1;
 
     /**
      * Constructs a WordPredictor with the specified vocabulary.
@@ -21,8 +53,9 @@ public class WordPredictor
      * @param words the collection of words to use as the vocabulary
      */
     public WordPredictor(Collection<String> words) {
-        this.vocabulary = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        this.vocabulary.addAll(words);
+        for (String word : words) {
+            insert(word);
+        }
     }
 
     /**
@@ -33,35 +66,73 @@ public class WordPredictor
      * @param maxSuggestions the maximum number of suggestions to return
      * @return a list of words that start with the prefix
      */
-    public List<String> predictWords(String prefix, int maxSuggestions) {
-        if (prefix == null || prefix.trim().isEmpty()) {
-            return new ArrayList<>();
-        }
-
+    public synchronized List<String> predictWords(String prefix, int maxSuggestions) {
         List<String> predictions = new ArrayList<>();
-        String lowerPrefix = prefix.toLowerCase();
+        if (prefix == null || prefix.trim().isEmpty() || maxSuggestions <= 0) {
+            return predictions;
+        }
 
-        for (String word : vocabulary) {
-            if (word.toLowerCase().startsWith(lowerPrefix)) {
-                predictions.add(word);
-                if (predictions.size() >= maxSuggestions) {
-                    break;
-                }
+        Node node = find(prefix, 0, prefix.length(), false);
+        if (node == null) {
+            return predictions;
+        }
+        if (maxSuggestions > TOP_K && node.top.length == TOP_K) {
+            // More words are wanted than the node keeps, so select them from the whole subtree
+            PriorityQueue<Node> best = new PriorityQueue<>(maxSuggestions + 1, PREDICTION_ORDER.reversed());
+            collectBest(node, best, maxSuggestions);
+            while (!best.isEmpty()) {
+                predictions.add(best.poll().word);
             }
+            Collections.reverse(predictions);
+            return predictions;
+        }
+        for (int i = 0; i < node.top.length && predictions.size() < maxSuggestions; i++) {
+            predictions.add(node.top[i].word);
         }
-
         return predictions;
     }
 
+    /**
+     * Learns a use of a vocabulary word, so it is predicted before words used less often.
+     * The word is read in place from the text and nothing is allocated.
+     *
+     * @param text the text holding the word
+     * @param start the offset of the first character of the word
+     * @param end the offset after the last character of the word
+     * @return true if the use was learned, false if the word is not in the vocabulary
+     */
+    public synchronized boolean learnWord(CharSequence text, int start, int end) {
+        Node wordNode = find(text, start, end, true);
+        if (wordNode == null || wordNode.word == null) {
+            return false;
+        }
+        wordNode.score += weight;
+        weight *= GROWTH;
+
+        Node node = root;
+        node.promote(wordNode);
+        for (int i = start; i < end; i += node.label.length()) {
+            node = node.child(Character.toLowerCase(text.charAt(i)));
+            node.promote(wordNode);
+        }
+
+        if (weight > MAX_WEIGHT) {
+            // Scaling every score alike keeps the order of the words
+            scaleScores(root, 1 / weight);
+            weight = 1;
+        }
+        return true;
+    }
+
     /**
      * Adds a word to the vocabulary.
      * Empty or null words are ignored.
      *
      * @param word the word to add to the vocabulary
      */
-    public void addWord(String word) {
+    public synchronized void addWord(String word) {
         if (word != null && !word.trim().isEmpty()) {
-            vocabulary.add(word.trim());
+            insert(word.trim());
         }
     }
 
@@ -71,8 +142,281 @@ public class WordPredictor
      *
      * @param newWords the new collection of words for the vocabulary
      */
-    public void updateVocabulary(Collection<String> newWords) {
-        vocabulary.clear();
-        vocabulary.addAll(newWords);
+    public synchronized void updateVocabulary(Collection<String> newWords) {
+        root = new Node("");
+        weight = 1;
+        for (String word : newWords) {
+            insert(word);
+        }
+    }
+
+    /**
+     * Finds the node reached by following characters of a text down the trie.
+     *
+     * @param text the text holding the characters, compared in lower case
+     * @param start the offset of the first character
+     * @param end the offset after the last character
+     * @param whole whether the characters must end at a node rather than within the label of one
+     * @return the highest node whose words all start with the characters, or null if there is none
+     */
+    private Node find(CharSequence text, int start, int end, boolean whole) {
+        Node node = root;
+        int i = start;
+        while (i < end) {
+            Node child = node.child(Character.toLowerCase(text.charAt(i)));
+            if (child == null) {
+                return null;
+            }
+            int j = 0;
+            for (; j < child.label.length() && i < end; j++, i++) {
+                if (child.label.charAt(j) != Character.toLowerCase(text.charAt(i))) {
+                    return null;
+                }
+            }
+            if (whole && j < child.label.length()) {
+                return null;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Inserts a word into the trie, splitting an edge where the word leaves it, and offers the word
+     * to the best words of every node on its path. A word differing from a vocabulary word only
+     * in case is not inserted.
+     *
+     * @param word the word to insert
+     * @return true if the word was inserted, false if it is empty or already in the vocabulary
+     */
+    private boolean insert(String word) {
+        if (word.isEmpty()) {
+            return false;
+        }
+        String key = toLowerCase(word);
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.indexOfChild(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.insertChild(-index - 1, leaf);
+                path.add(leaf);
+                node = leaf;
+                break;
+            }
+            Node child = node.children[index];
+            int common = 1;
+            while (common < child.label.length() && i + common < key.length()
+                    && child.label.charAt(common) == key.charAt(i + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                child = child.split(common);
+                node.children[index] = child;
+            }
+            path.add(child);
+            node = child;
+            i += common;
+        }
+
+        if (node.word != null) {
+            return false;
+        }
+        node.word = word;
+        for (Node pathNode : path) {
+            pathNode.offer(node);
+        }
+        return true;
+    }
+
+    /**
+     * Selects the best words below a node with a bounded heap.
+     *
+     * @param node the node to start from
+     * @param best the heap of the best words found so far, the worst one at its head
+     * @param count the number of words to select
+     */
+    private static void collectBest(Node node, PriorityQueue<Node> best, int count) {
+        if (node.word != null) {
+            best.add(node);
+            if (best.size() > count) {
+                best.poll();
+            }
+        }
+        for (Node child : node.children) {
+            collectBest(child, best, count);
+        }
+    }
+
+    /**
+     * Multiplies the scores of all words below a node by a factor.
+     *
+     * @param node the node to start from
+     * @param factor the factor to multiply by
+     */
+    private static void scaleScores(Node node, double factor) {
+        node.score *= factor;
+        for (Node child : node.children) {
+            scaleScores(child, factor);
+        }
+    }
+
+    /**
+     * Converts a word to lower case one character at a time, so it keeps its length.
+     *
+     * @param word the word to convert
+     * @return the word in lower case
+     */
+    private static String toLowerCase(String word) {
+        char[] chars = new char[word.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(word.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A node of the trie, reached from its parent by the characters of its label.
+     */
+    private static final class Node
+            implements Serializable {
+
+        /** Shared array of a node without children or words */
+        private static final Node[] NONE = new Node[0];
+
+        /** The lower case characters of the edge from the parent */
+        private String label;
+
+        /** The child nodes, sorted by the first character of their labels */
+        private Node[] children = NONE;
+
+        /** The vocabulary word ending at this node, or null if only longer words pass through it */
+        private String word;
+
+        /** The nodes of the first {@value #TOP_K} words at or below this node, in prediction order */
+        private Node[] top = NONE;
+
+        /** The decayed usage score of the word ending at this node */
+        private double score;
+
+        /**
+         * Constructs a node without children.
+         *
+         * @param label the characters of the edge from the parent
+         */
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the child whose label starts with a character.
+         *
+         * @param c the first character of the label
+         * @return the child, or null if there is none
+         */
+        private Node child(char c) {
+            int index = indexOfChild(c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * Finds the child whose label starts with a character by binary search.
+         *
+         * @param c the first character of the label
+         * @return the index of the child, or (-(insertion point) - 1) if there is none
+         */
+        private int indexOfChild(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char first = children[middle].label.charAt(0);
+                if (first < c) {
+                    low = middle + 1;
+                } else if (first > c) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Inserts a child at a position of the sorted children.
+         *
+         * @param index the position of the child
+         * @param child the child to insert
+         */
+        private void insertChild(int index, Node child) {
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            children = newChildren;
+        }
+
+        /**
+         * Splits the edge to this node, keeping this node with the end of its label below a new node.
+         * The new node holds the same words, so it keeps the same best words.
+         *
+         * @param length the number of label characters to move to the new node
+         * @return the new node, to replace this one among the children of its parent
+         */
+        private Node split(int length) {
+            Node parent = new Node(label.substring(0, length));
+            parent.children = new Node[] {this};
+            parent.top = top.clone();
+            label = label.substring(length);
+            return parent;
+        }
+
+        /**
+         * Offers a word added below this node to its best words.
+         *
+         * @param wordNode the node of the word
+         */
+        private void offer(Node wordNode) {
+            int position = top.length;
+            while (position > 0 && PREDICTION_ORDER.compare(wordNode, top[position - 1]) < 0) {
+                position--;
+            }
+            if (position >= TOP_K) {
+                return;
+            }
+            Node[] newTop = new Node[Math.min(top.length + 1, TOP_K)];
+            System.arraycopy(top, 0, newTop, 0, position);
+            newTop[position] = wordNode;
+            System.arraycopy(top, position, newTop, position + 1, newTop.length - position - 1);
+            top = newTop;
+        }
+
+        /**
+         * Moves a word below this node up its best words after the score of the word was raised.
+         * The word may enter the best words, pushing out the last one. Nothing is allocated.
+         *
+         * @param wordNode the node of the word
+         */
+        private void promote(Node wordNode) {
+            int position = top.length - 1;
+            while (position >= 0 && top[position] != wordNode) {
+                position--;
+            }
+            if (position < 0) {
+                // A node keeping fewer than TOP_K words keeps all of them, so the word was not among the best
+                if (PREDICTION_ORDER.compare(wordNode, top[top.length - 1]) >= 0) {
+                    return;
+                }
+                position = top.length - 1;
+                top[position] = wordNode;
+            }
+            while (position > 0 && PREDICTION_ORDER.compare(wordNode, top[position - 1]) < 0) {
+                top[position] = top[position - 1];
+                top[--position] = wordNode;
+            }
+        }
     }
-}
\ No newline at end of file
+}
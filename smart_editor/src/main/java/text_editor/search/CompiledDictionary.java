@@ -0,0 +1,397 @@
+package main.java.text_editor.search;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The CompiledDictionary class is a read-only dictionary stored in a precompiled binary file.
+ * The file is memory-mapped, so opening it takes constant time, and the words are read in place:
+ * the dictionary holds a few buffer views and no object per word, whatever its size.
+ *
+ * <p>A dictionary is compiled once from the text dictionaries with {@link #compile(List, List, Path)}
+ * or from the command line with {@link #main(String[])}. Its words are lower case, sorted and
+ * unique, and each word may have a translation, so a single file serves both spell checking and
+ * translation. Lookups go through a hash table stored in the file and take constant expected time.</p>
+ *
+ * <p>The file starts with a header of five big-endian ints: a magic number, the format version,
+ * the number of words, the capacity of the hash table and a flag telling whether translations
+ * are present. It is followed by the character offsets of the words, the character offsets of
+ * the translations if present, the hash table holding the index of a word or -1 in every slot,
+ * and finally the characters of all words and translations as UTF-16.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class CompiledDictionary
+        implements WordLookup {
+
+    /** Magic number at the beginning of every compiled dictionary */
+    private static final int MAGIC = 0x53454443;
+
+    /** Version of the file format */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Number of ints in the header */
+    private static final int HEADER_INTS = 5;
+
+    /** Number of words */
+    private final int size;
+
+    /** Offset of each word in {@link #chars}, followed by the end of the last word */
+    private final IntBuffer wordOffsets;
+
+    /** Offset of each translation in {@link #chars}, followed by the end of the last one, or null */
+    private final IntBuffer translationOffsets;
+
+    /** Hash table of word indexes, with -1 in empty slots; its capacity is a power of two */
+    private final IntBuffer slots;
+
+    /** The characters of all words and translations */
+    private final CharBuffer chars;
+
+    /**
+     * Constructs a dictionary over the sections of a mapped file.
+     *
+     * @param size the number of words
+     * @param wordOffsets the offsets of the words
+     * @param translationOffsets the offsets of the translations, or null
+     * @param slots the hash table
+     * @param chars the characters of the words and translations
+     */
+    private CompiledDictionary(int size, IntBuffer wordOffsets, IntBuffer translationOffsets,
+                               IntBuffer slots, CharBuffer chars) {
+        this.size = size;
+        this.wordOffsets = wordOffsets;
+        this.translationOffsets = translationOffsets;
+        this.slots = slots;
+        this.chars = chars;
+    }
+
+    /**
+     * Opens a compiled dictionary by memory-mapping its file.
+     *
+     * @param path the path of the compiled dictionary
+     * @return the dictionary
+     * @throws IOException if the file cannot be read or is not a compiled dictionary
+     */
+    public static CompiledDictionary open(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Dictionary is too large: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_INTS * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled dictionary: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported dictionary version " + buffer.getInt(4) + ": " + path);
+        }
+        int size = buffer.getInt(8);
+        int capacity = buffer.getInt(12);
+        boolean translated = buffer.getInt(16) != 0;
+
+        try {
+            int position = HEADER_INTS * Integer.BYTES;
+            IntBuffer wordOffsets = buffer.slice(position, (size + 1) * Integer.BYTES).asIntBuffer();
+            position += (size + 1) * Integer.BYTES;
+            IntBuffer translationOffsets = null;
+            if (translated) {
+                translationOffsets = buffer.slice(position, (size + 1) * Integer.BYTES).asIntBuffer();
+                position += (size + 1) * Integer.BYTES;
+            }
+            IntBuffer slots = buffer.slice(position, capacity * Integer.BYTES).asIntBuffer();
+            position += capacity * Integer.BYTES;
+            CharBuffer chars = buffer.slice(position, buffer.capacity() - position).asCharBuffer();
+            return new CompiledDictionary(size, wordOffsets, translationOffsets, slots, chars);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted dictionary: " + path, e);
+        }
+    }
+
+    /**
+     * Compiles words and their optional translations into a dictionary file.
+     * Words are converted to lower case, and when a word occurs more than once its last translation is kept.
+     * The file is written under a temporary name in the same directory and then moved over the output,
+     * so dictionaries already opened from the output keep the mapping of the old file and never see
+     * it truncated or half written.
+     *
+     * @param words the words of the dictionary
+     * @param translations the translation of each word, or null for a dictionary without translations
+     * @param output the path of the file to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if there are not as many translations as words
+     */
+    public static void compile(List<String> words, List<String> translations, Path output) throws IOException {
+        if (translations != null && translations.size() != words.size()) {
+            throw new IllegalArgumentException("Source and target dictionaries must have the same size.");
+        }
+
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            entries.put(words.get(i).toLowerCase(), translations == null ? "" : translations.get(i));
+        }
+        int size = entries.size();
+        int capacity = 16;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        int index = 0;
+        for (String word : entries.keySet()) {
+            int slot = WordSet.hash(word, false) & (capacity - 1);
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = index++;
+        }
+
+        Path directory = output.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+        try {
+            write(entries, translations != null, slots, temporary);
+            try {
+                Files.move(temporary, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes the header, the offsets, the hash table and the characters of a compiled dictionary.
+     *
+     * @param entries the lower case words and their translations, sorted
+     * @param hasTranslations whether the translations are written
+     * @param slots the hash table holding the index of a word or -1 in every slot
+     * @param output the path of the file to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(TreeMap<String, String> entries, boolean hasTranslations, int[] slots, Path output)
+            throws IOException {
+        int size = entries.size();
+        int capacity = slots.length;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(size);
+            out.writeInt(capacity);
+            out.writeInt(hasTranslations ? 1 : 0);
+
+            int offset = 0;
+            for (String word : entries.keySet()) {
+                out.writeInt(offset);
+                offset += word.length();
+            }
+            out.writeInt(offset);
+            if (hasTranslations) {
+                for (String translation : entries.values()) {
+                    out.writeInt(offset);
+                    offset += translation.length();
+                }
+                out.writeInt(offset);
+            }
+            for (int slot : slots) {
+                out.writeInt(slot);
+            }
+            for (String word : entries.keySet()) {
+                out.writeChars(word);
+            }
+            if (hasTranslations) {
+                for (String translation : entries.values()) {
+                    out.writeChars(translation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of words in the dictionary.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the dictionary has a translation for every word.
+     *
+     * @return true if the dictionary holds translations, false otherwise
+     */
+    public boolean hasTranslations() {
+        return translationOffsets != null;
+    }
+
+    /**
+     * Checks whether the dictionary contains the specified word converted to lower case.
+     *
+     * @param word the word to look up
+     * @return true if the dictionary contains the word in lower case, false otherwise
+     */
+    @Override
+    public boolean contains(CharSequence word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * Finds the index of the specified word converted to lower case.
+     *
+     * @param word the word to look up
+     * @return the index of the word in sorted order, or -1 if the dictionary does not contain it
+     */
+    public int indexOf(CharSequence word) {
+        int mask = slots.capacity() - 1;
+        for (int slot = WordSet.hash(word, true) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots.get(slot);
+            if (index < 0) {
+                return -1;
+            }
+            if (matches(wordOffsets.get(index), wordOffsets.get(index + 1), word)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Gets the word at the specified index.
+     *
+     * @param index the index of the word in sorted order
+     * @return a view of the word in the mapped file
+     * @throws IndexOutOfBoundsException if there is no such word
+     */
+    public CharSequence getWord(int index) {
+        return chars.subSequence(wordOffsets.get(index), wordOffsets.get(index + 1));
+    }
+
+    /**
+     * Gets the translation of the word at the specified index.
+     *
+     * @param index the index of the word in sorted order
+     * @return a view of the translation in the mapped file
+     * @throws IndexOutOfBoundsException if there is no such word
+     * @throws IllegalStateException if the dictionary has no translations
+     */
+    public CharSequence getTranslation(int index) {
+        if (translationOffsets == null) {
+            throw new IllegalStateException("The dictionary has no translations.");
+        }
+        return chars.subSequence(translationOffsets.get(index), translationOffsets.get(index + 1));
+    }
+
+    /**
+     * Translates the specified word converted to lower case.
+     *
+     * @param word the word to translate
+     * @return a view of the translation, or null if the dictionary does not contain the word
+     * @throws IllegalStateException if the dictionary has no translations
+     */
+    public CharSequence translate(CharSequence word) {
+        int index = indexOf(word);
+        return index < 0 ? null : getTranslation(index);
+    }
+
+    /**
+     * Gets the words of the dictionary as a list that creates each string when it is read.
+     *
+     * @return the words in sorted order
+     */
+    public List<String> words() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getWord(index).toString();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Compares a word stored in the file with a word being looked up in lower case.
+     *
+     * @param start the offset of the stored word in {@link #chars}
+     * @param end the end of the stored word in {@link #chars}
+     * @param word the word being looked up
+     * @return true if the words are equal
+     */
+    private boolean matches(int start, int end, CharSequence word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (chars.get(start + i) != Character.toLowerCase(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles text dictionaries into a binary dictionary.
+     * The text files hold words separated by whitespace and are read as UTF-8.
+     * With a target dictionary, the word at each position of the source dictionary
+     * is translated to the word at the same position of the target dictionary.
+     *
+     * @param args the source dictionary, optionally the target dictionary, and the output file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: CompiledDictionary <source dictionary> [<target dictionary>] <output file>");
+            System.exit(1);
+        }
+        List<String> words = readWords(Paths.get(args[0]));
+        List<String> translations = args.length == 3 ? readWords(Paths.get(args[1])) : null;
+        Path output = Paths.get(args[args.length - 1]);
+        compile(words, translations, output);
+        System.out.println("Compiled " + words.size() + " words into " + output);
+    }
+
+    /**
+     * Reads the whitespace-separated words of a text dictionary in lower case.
+     *
+     * @param path the path of the text dictionary
+     * @return the words in the order they appear
+     * @throws IOException if the file cannot be read
+     */
+    private static List<String> readWords(Path path) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String word : line.split("\\s+")) {
+                    if (!word.isEmpty()) {
+                        words.add(word.toLowerCase());
+                    }
+                }
+            }
+        }
+        return words;
+    }
+}
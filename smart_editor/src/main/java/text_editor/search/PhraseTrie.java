@@ -0,0 +1,314 @@
+package main.java.text_editor.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PhraseTrie class maps phrases of several words to their translations. It is a trie whose
+ * edges are whole words, so the longest phrase starting at a word is found by following one edge
+ * per word of the text, whatever the number of phrases.
+ *
+ * <p>The words of a phrase are separated by whitespace or by underscores, so phrases can be written
+ * as single entries of the whitespace-separated dictionary files, such as "good_morning".
+ * Underscores in translations are replaced by spaces. Words are stored in lower case and looked up
+ * ignoring case, without copying the looked up word.</p>
+ *
+ * <p>Edges are kept in a single open-addressing table keyed by the parent node and the word,
+ * and the words in one character array, so the trie holds a few arrays and no object per node or edge.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class PhraseTrie {
+
+    /** The node of the empty phrase, where every lookup starts */
+    public static final int ROOT = 0;
+
+    /** Smallest capacity of the node and edge arrays */
+    private static final int MIN_CAPACITY = 16;
+
+    /** Number of nodes, including the root */
+    private int nodeCount = 1;
+
+    /** The translation of the phrase ending at each node, or null if no phrase ends there */
+    private String[] translations = new String[MIN_CAPACITY];
+
+    /** Number of phrases */
+    private int size;
+
+    /** Number of ints per edge in {@link #edges} */
+    private static final int EDGE_INTS = 4;
+
+    /**
+     * The hash table of edges. Each slot holds the parent node, with -1 for empty slots, the hash
+     * of the edge, the child node and the offset of the word in {@link #wordChars}. Keeping them
+     * together makes following an edge touch a single part of memory. The number of slots is a power of two.
+     */
+    private int[] edges;
+
+    /** The words of the edges, each stored as its length followed by its characters */
+    private char[] wordChars = new char[MIN_CAPACITY * 4];
+
+    /** Number of characters used in {@link #wordChars} */
+    private int wordCharCount;
+
+    /** Number of edges */
+    private int edgeCount;
+
+    /** The words that follow another word in some phrase */
+    private final WordSet continuations = new WordSet();
+
+    /**
+     * Constructs an empty trie.
+     */
+    public PhraseTrie() {
+        edges = newEdgeTable(MIN_CAPACITY);
+    }
+
+    /**
+     * Checks whether a dictionary entry may be a phrase, which is when it contains whitespace or an underscore.
+     *
+     * @param entry the source entry of a dictionary
+     * @return true if the entry may consist of several words, false if it is a single word
+     */
+    public static boolean isPhrase(CharSequence entry) {
+        for (int i = 0; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            if (c == '_' || Character.isWhitespace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a phrase and its translation, replacing an earlier translation of the same phrase.
+     *
+     * @param phrase the words of the phrase separated by whitespace or underscores
+     * @param translation the translation, with underscores standing for spaces
+     * @return true if the phrase was added, false if it has fewer than two words
+     * @throws IllegalArgumentException if a word of the phrase is longer than 65535 characters
+     */
+    public boolean add(String phrase, String translation) {
+        List<String> words = splitWords(phrase);
+        if (words.size() < 2) {
+            return false;
+        }
+        for (String word : words) {
+            if (word.length() > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Phrase word is too long: " + word.length() + " characters");
+            }
+        }
+
+        int node = ROOT;
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            int child = child(node, word, false);
+            if (child < 0) {
+                child = addEdge(node, word);
+            }
+            if (i > 0) {
+                continuations.add(word);
+            }
+            node = child;
+        }
+        if (translations[node] == null) {
+            size++;
+        }
+        translations[node] = translation.replace('_', ' ');
+        return true;
+    }
+
+    /**
+     * Follows the edge of a word from a node.
+     *
+     * @param node the node to start from, {@link #ROOT} for the first word of a phrase
+     * @param word the next word, looked up in lower case
+     * @return the node reached, or -1 if no phrase continues with the word
+     */
+    public int child(int node, CharSequence word) {
+        return child(node, word, true);
+    }
+
+    /**
+     * Gets the translation of the phrase ending at a node.
+     *
+     * @param node a node returned by {@link #child(int, CharSequence)}
+     * @return the translation, or null if the words up to the node are only the beginning of longer phrases
+     */
+    public String getTranslation(int node) {
+        return translations[node];
+    }
+
+    /**
+     * Checks whether a word follows another word in some phrase. Text can be split before any other word
+     * without splitting a phrase.
+     *
+     * @param word the word to check, looked up in lower case
+     * @return true if a phrase continues with the word, false otherwise
+     */
+    public boolean isContinuation(CharSequence word) {
+        return continuations.contains(word);
+    }
+
+    /**
+     * Gets the number of phrases.
+     *
+     * @return the number of phrases
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the trie holds no phrases.
+     *
+     * @return true if there are no phrases, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Splits a phrase into its words in lower case.
+     *
+     * @param phrase the words separated by whitespace or underscores
+     * @return the words of the phrase
+     */
+    private static List<String> splitWords(String phrase) {
+        List<String> words = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= phrase.length(); i++) {
+            if (i == phrase.length() || phrase.charAt(i) == '_' || Character.isWhitespace(phrase.charAt(i))) {
+                if (start < i) {
+                    words.add(phrase.substring(start, i).toLowerCase());
+                }
+                start = i + 1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Follows the edge of a word from a node.
+     *
+     * @param node the node to start from
+     * @param word the word on the edge
+     * @param foldCase whether to convert the word to lower case first
+     * @return the child node, or -1 if there is no such edge
+     */
+    private int child(int node, CharSequence word, boolean foldCase) {
+        int hash = hash(node, word, foldCase);
+        int mask = edges.length / EDGE_INTS - 1;
+        for (int slot = hash & mask; edges[slot * EDGE_INTS] >= 0; slot = (slot + 1) & mask) {
+            int i = slot * EDGE_INTS;
+            if (edges[i + 1] == hash && edges[i] == node && matches(edges[i + 3], word, foldCase)) {
+                return edges[i + 2];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an edge to a new node.
+     *
+     * @param node the parent node
+     * @param word the word on the edge, in lower case
+     * @return the new node
+     */
+    private int addEdge(int node, String word) {
+        if ((edgeCount + 1) * 2 > edges.length / EDGE_INTS) {
+            int[] oldEdges = edges;
+            edges = newEdgeTable(oldEdges.length / EDGE_INTS * 2);
+            for (int i = 0; i < oldEdges.length; i += EDGE_INTS) {
+                if (oldEdges[i] >= 0) {
+                    insertEdge(oldEdges[i], oldEdges[i + 1], oldEdges[i + 2], oldEdges[i + 3]);
+                }
+            }
+        }
+        if (nodeCount == translations.length) {
+            translations = Arrays.copyOf(translations, nodeCount * 2);
+        }
+        if (wordCharCount + word.length() + 1 > wordChars.length) {
+            wordChars = Arrays.copyOf(wordChars, Math.max(wordChars.length * 2, wordCharCount + word.length() + 1));
+        }
+        int wordOffset = wordCharCount;
+        wordChars[wordCharCount++] = (char) word.length();
+        word.getChars(0, word.length(), wordChars, wordCharCount);
+        wordCharCount += word.length();
+
+        int child = nodeCount++;
+        insertEdge(node, hash(node, word, false), child, wordOffset);
+        edgeCount++;
+        return child;
+    }
+
+    /**
+     * Stores an edge in the first free slot of its probe sequence.
+     *
+     * @param node the parent node
+     * @param hash the hash of the parent node and word
+     * @param child the child node
+     * @param wordOffset the offset of the word in {@link #wordChars}
+     */
+    private void insertEdge(int node, int hash, int child, int wordOffset) {
+        int mask = edges.length / EDGE_INTS - 1;
+        int slot = hash & mask;
+        while (edges[slot * EDGE_INTS] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        int i = slot * EDGE_INTS;
+        edges[i] = node;
+        edges[i + 1] = hash;
+        edges[i + 2] = child;
+        edges[i + 3] = wordOffset;
+    }
+
+    /**
+     * Creates an empty table of edges.
+     *
+     * @param capacity the number of slots, a power of two
+     * @return the table with every slot empty
+     */
+    private static int[] newEdgeTable(int capacity) {
+        int[] table = new int[capacity * EDGE_INTS];
+        for (int i = 0; i < table.length; i += EDGE_INTS) {
+            table[i] = -1;
+        }
+        return table;
+    }
+
+    /**
+     * Computes the hash of an edge from its parent node and word.
+     *
+     * @param node the parent node
+     * @param word the word on the edge
+     * @param foldCase whether to convert the characters to lower case first
+     * @return the hash of the edge
+     */
+    private static int hash(int node, CharSequence word, boolean foldCase) {
+        int hash = (WordSet.hash(word, foldCase) * 31 + node) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares the word of an edge with a word being looked up.
+     *
+     * @param wordOffset the offset of the word of the edge in {@link #wordChars}
+     * @param word the word being looked up
+     * @param foldCase whether to convert the characters of the looked up word to lower case first
+     * @return true if the words are equal
+     */
+    private boolean matches(int wordOffset, CharSequence word, boolean foldCase) {
+        if (wordChars[wordOffset] != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (wordChars[wordOffset + 1 + i] != (foldCase ? Character.toLowerCase(c) : c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
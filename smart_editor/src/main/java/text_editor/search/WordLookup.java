@@ -0,0 +1,19 @@
+package main.java.text_editor.search;
+
+/**
+ * The WordLookup interface is implemented by sets of words that can tell whether
+ * they contain a word, ignoring the case of the word looked up.
+ *
+ * @author Ugnius Teišerskis
+ */
+public interface WordLookup {
+
+    /**
+     * Checks whether the set contains the specified word converted to lower case.
+     * The word may be a view of a text buffer, and implementations do not copy it.
+     *
+     * @param word the word to look up
+     * @return true if the set contains the word in lower case, false otherwise
+     */
+    boolean contains(CharSequence word);
+}
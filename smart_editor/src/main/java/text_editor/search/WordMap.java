@@ -0,0 +1,76 @@
+package main.java.text_editor.search;
+
+import java.util.Map;
+
+/**
+ * The WordMap class is an immutable hash map from words to values that looks up a word
+ * converted to lower case in constant expected time.
+ *
+ * <p>Like {@link WordSet}, it keeps the words in an open-addressing table with linear probing.
+ * A lookup hashes the characters of any {@link CharSequence} converted to lower case one by one
+ * and compares them with the stored words in place, so looking up a slice of a text buffer
+ * allocates nothing. Stored words are compared as they are, so a word stored in upper case
+ * is never found.</p>
+ *
+ * @param <V> the type of the values
+ * @author Ugnius Teišerskis
+ */
+public final class WordMap<V> {
+
+    /** Smallest capacity of the table */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The table of words, with null for empty slots; its length is a power of two */
+    private final String[] words;
+
+    /** The hash of the word in each slot */
+    private final int[] hashes;
+
+    /** The value of the word in each slot */
+    private final Object[] values;
+
+    /**
+     * Constructs a map holding the entries of the specified map.
+     *
+     * @param entries the words and their values
+     */
+    public WordMap(Map<String, ? extends V> entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries.size() * 2) {
+            capacity *= 2;
+        }
+        words = new String[capacity];
+        hashes = new int[capacity];
+        values = new Object[capacity];
+
+        int mask = capacity - 1;
+        for (Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+            int hash = WordSet.hash(entry.getKey(), false);
+            int slot = hash & mask;
+            while (words[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            words[slot] = entry.getKey();
+            hashes[slot] = hash;
+            values[slot] = entry.getValue();
+        }
+    }
+
+    /**
+     * Gets the value of the specified word converted to lower case.
+     *
+     * @param word the word to look up
+     * @return the value of the word in lower case, or null if the map does not contain it
+     */
+    @SuppressWarnings("unchecked")
+    public V get(CharSequence word) {
+        int hash = WordSet.hash(word, true);
+        int mask = words.length - 1;
+        for (int slot = hash & mask; words[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && WordSet.matches(words[slot], word, true)) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+}
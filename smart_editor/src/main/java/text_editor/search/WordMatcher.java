@@ -0,0 +1,343 @@
+package main.java.text_editor.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * The WordMatcher class finds whole-word occurrences of many words at once.
+ * It builds an Aho-Corasick automaton over the words, so the text is scanned
+ * a single time no matter how many words are searched for.
+ *
+ * <p>An occurrence counts as a whole word when it starts at the beginning of the text
+ * or right after a whitespace character, and ends at the end of the text or right
+ * before a whitespace character. Occurrences are reported from left to right without
+ * overlapping: when several words end at the same offset the longest one is used,
+ * and an occurrence that overlaps an earlier reported one is skipped.</p>
+ *
+ * <p>A matcher is immutable once built and can be reused for any number of texts.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public class WordMatcher {
+
+    /** Initial capacity of the node arrays */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of nodes in the automaton, the root is node 0 */
+    private int nodeCount;
+
+    /** Parent node of each node */
+    private int[] parent;
+
+    /** Character on the edge leading to each node */
+    private char[] edgeChar;
+
+    /** Depth of each node, which is the length of the prefix it represents */
+    private int[] depth;
+
+    /** Failure link of each node, pointing to the node of its longest proper suffix */
+    private int[] failure;
+
+    /** Nearest node on the failure chain that ends a word, or -1 if there is none */
+    private int[] outputLink;
+
+    /** Whether each node ends one of the words */
+    private boolean[] terminal;
+
+    /** Open-addressing table of edge keys, combining a node and a character */
+    private long[] edgeKeys;
+
+    /** Child node for each entry of {@link #edgeKeys} */
+    private int[] edgeTargets;
+
+    /** Number of edges stored in the edge table */
+    private int edgeCount;
+
+    /** Length of the longest word */
+    private int maxWordLength;
+
+    /**
+     * Constructs a matcher for the specified words.
+     * Empty words are ignored.
+     *
+     * @param words the words to search for
+     */
+    public WordMatcher(Collection<String> words) {
+        parent = new int[INITIAL_CAPACITY];
+        edgeChar = new char[INITIAL_CAPACITY];
+        depth = new int[INITIAL_CAPACITY];
+        terminal = new boolean[INITIAL_CAPACITY];
+        edgeKeys = new long[INITIAL_CAPACITY * 2];
+        Arrays.fill(edgeKeys, -1L);
+        edgeTargets = new int[INITIAL_CAPACITY * 2];
+        nodeCount = 1;
+
+        for (String word : words) {
+            addWord(word);
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Checks whether the matcher has no words to look for.
+     *
+     * @return true if no words were given, false otherwise
+     */
+    public boolean isEmpty() {
+        return maxWordLength == 0;
+    }
+
+    /**
+     * Finds the whole-word occurrences in a text given as consecutive chunks.
+     *
+     * @param chunks the chunks of the text, in order
+     * @return the occurrences as pairs of start and end offsets, ordered by position
+     */
+    public int[] findWholeWords(Iterator<CharSequence> chunks) {
+        int[] matches = new int[16];
+        int matchCount = 0;
+
+        // Whether the character just before each recent offset was whitespace, indexed modulo the window size
+        boolean[] boundaryBefore = new boolean[maxWordLength + 1];
+        int state = 0;
+        int position = 0;
+        int lastMatchEnd = 0;
+        int pendingStart = -1;
+        boolean previousWhitespace = true;
+
+        while (chunks.hasNext()) {
+            CharSequence chunk = chunks.next();
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                boolean whitespace = Character.isWhitespace(c);
+
+                if (pendingStart >= 0 && whitespace) {
+                    if (matchCount + 2 > matches.length) {
+                        matches = Arrays.copyOf(matches, matches.length * 2);
+                    }
+                    matches[matchCount++] = pendingStart;
+                    matches[matchCount++] = position;
+                    lastMatchEnd = position;
+                }
+
+                boundaryBefore[position % boundaryBefore.length] = previousWhitespace;
+                state = nextState(state, c);
+                position++;
+                pendingStart = wholeWordStart(state, position, lastMatchEnd, boundaryBefore);
+                previousWhitespace = whitespace;
+            }
+        }
+
+        if (pendingStart >= 0) {
+            if (matchCount + 2 > matches.length) {
+                matches = Arrays.copyOf(matches, matches.length + 2);
+            }
+            matches[matchCount++] = pendingStart;
+            matches[matchCount++] = position;
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Finds the start of the longest word ending at the specified offset that begins at a
+     * word boundary and does not overlap the previous occurrence.
+     *
+     * @param state the automaton state after reading the character before end
+     * @param end the offset where the words end
+     * @param lastMatchEnd the end offset of the previous occurrence
+     * @param boundaryBefore the recent word-boundary flags
+     * @return the start offset of the word, or -1 if there is none
+     */
+    private int wholeWordStart(int state, int end, int lastMatchEnd, boolean[] boundaryBefore) {
+        int node = terminal[state] ? state : outputLink[state];
+        while (node > 0) {
+            int start = end - depth[node];
+            if (start >= lastMatchEnd && boundaryBefore[start % boundaryBefore.length]) {
+                return start;
+            }
+            node = outputLink[node];
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the automaton to the state reached by reading a character.
+     *
+     * @param state the current state
+     * @param c the character read
+     * @return the next state
+     */
+    private int nextState(int state, char c) {
+        while (true) {
+            int child = child(state, c);
+            if (child >= 0) {
+                return child;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Adds a word to the trie.
+     *
+     * @param word the word to add
+     */
+    private void addWord(String word) {
+        if (word.isEmpty()) {
+            return;
+        }
+        int node = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int next = child(node, c);
+            if (next < 0) {
+                next = addNode(node, c);
+            }
+            node = next;
+        }
+        terminal[node] = true;
+        maxWordLength = Math.max(maxWordLength, word.length());
+    }
+
+    /**
+     * Creates a new trie node below the specified node.
+     *
+     * @param parentNode the parent of the new node
+     * @param c the character on the edge to the new node
+     * @return the new node
+     */
+    private int addNode(int parentNode, char c) {
+        if (nodeCount == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            edgeChar = Arrays.copyOf(edgeChar, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        int node = nodeCount++;
+        parent[node] = parentNode;
+        edgeChar[node] = c;
+        depth[node] = depth[parentNode] + 1;
+        putEdge(parentNode, c, node);
+        return node;
+    }
+
+    /**
+     * Computes the failure and output links, visiting nodes in order of depth.
+     */
+    private void buildFailureLinks() {
+        failure = new int[nodeCount];
+        outputLink = new int[nodeCount];
+        outputLink[0] = -1;
+
+        int[] byDepth = new int[nodeCount];
+        int[] depthStart = new int[maxWordLength + 2];
+        for (int node = 0; node < nodeCount; node++) {
+            depthStart[depth[node] + 1]++;
+        }
+        for (int d = 1; d < depthStart.length; d++) {
+            depthStart[d] += depthStart[d - 1];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            byDepth[depthStart[depth[node]]++] = node;
+        }
+
+        for (int i = 1; i < nodeCount; i++) {
+            int node = byDepth[i];
+            int parentNode = parent[node];
+            if (parentNode == 0) {
+                failure[node] = 0;
+            } else {
+                failure[node] = nextState(failure[parentNode], edgeChar[node]);
+            }
+            int fail = failure[node];
+            outputLink[node] = terminal[fail] ? fail : outputLink[fail];
+        }
+    }
+
+    /**
+     * Looks up the child of a node along the edge with the specified character.
+     *
+     * @param node the parent node
+     * @param c the character on the edge
+     * @return the child node, or -1 if there is no such edge
+     */
+    private int child(int node, char c) {
+        long key = edgeKey(node, c);
+        int mask = edgeKeys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (edgeKeys[slot] == key) {
+                return edgeTargets[slot];
+            }
+            if (edgeKeys[slot] == -1L) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Stores an edge in the edge table, growing the table when it gets too full.
+     *
+     * @param node the parent node
+     * @param c the character on the edge
+     * @param target the child node
+     */
+    private void putEdge(int node, char c, int target) {
+        if ((edgeCount + 1) * 2 > edgeKeys.length) {
+            long[] oldKeys = edgeKeys;
+            int[] oldTargets = edgeTargets;
+            edgeKeys = new long[oldKeys.length * 2];
+            Arrays.fill(edgeKeys, -1L);
+            edgeTargets = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1L) {
+                    insertEdge(oldKeys[i], oldTargets[i]);
+                }
+            }
+        }
+        insertEdge(edgeKey(node, c), target);
+        edgeCount++;
+    }
+
+    /**
+     * Inserts a key into the edge table, which must have a free slot.
+     *
+     * @param key the edge key
+     * @param target the child node
+     */
+    private void insertEdge(long key, int target) {
+        int mask = edgeKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (edgeKeys[slot] != -1L) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+
+    /**
+     * Combines a node and a character into an edge key.
+     *
+     * @param node the parent node
+     * @param c the character on the edge
+     * @return the edge key
+     */
+    private static long edgeKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+
+    /**
+     * Spreads the bits of an edge key for use as a table index.
+     *
+     * @param key the edge key
+     * @return the hash of the key
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,230 @@
+package main.java.text_editor.search;
+
+import java.util.Collection;
+
+/**
+ * The WordSet class is a hash set of words that answers whether a word is contained
+ * in constant expected time, ignoring the case of the word looked up.
+ *
+ * <p>Words are kept in an open-addressing table with linear probing. A lookup hashes the
+ * characters of any {@link CharSequence} converted to lower case one by one and compares them
+ * with the stored words in place, so looking up a slice of a text buffer allocates nothing.
+ * Stored words are compared as they are, so a word added in upper case is never found;
+ * dictionaries are expected to hold lower case words.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class WordSet
+        implements WordLookup {
+
+    /** Smallest capacity of the table */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The table of words, with null for empty slots; its length is a power of two */
+    private String[] words;
+
+    /** The hash of the word in each slot */
+    private int[] hashes;
+
+    /** Number of words in the set */
+    private int size;
+
+    /**
+     * Constructs an empty set.
+     */
+    public WordSet() {
+        words = new String[MIN_CAPACITY];
+        hashes = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Constructs a set holding the specified words.
+     *
+     * @param words the words to add
+     */
+    public WordSet(Collection<String> words) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < words.size() * 2) {
+            capacity *= 2;
+        }
+        this.words = new String[capacity];
+        this.hashes = new int[capacity];
+        for (String word : words) {
+            add(word);
+        }
+    }
+
+    /**
+     * Checks whether the set contains the specified word converted to lower case.
+     *
+     * @param word the word to look up
+     * @return true if the set contains the word in lower case, false otherwise
+     */
+    @Override
+    public boolean contains(CharSequence word) {
+        return find(word, true) >= 0;
+    }
+
+    /**
+     * Checks whether the set contains exactly the specified word.
+     *
+     * @param word the word to look up
+     * @return true if the set contains the word, false otherwise
+     */
+    public boolean containsExact(CharSequence word) {
+        return find(word, false) >= 0;
+    }
+
+    /**
+     * Adds a word to the set.
+     *
+     * @param word the word to add
+     * @return true if the word was added, false if it was already in the set
+     */
+    public boolean add(String word) {
+        if (find(word, false) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 2 > words.length) {
+            resize(words.length * 2);
+        }
+        int hash = hash(word, false);
+        int mask = words.length - 1;
+        int slot = hash & mask;
+        while (words[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        words[slot] = word;
+        hashes[slot] = hash;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a word from the set.
+     *
+     * @param word the word to remove, compared exactly
+     * @return true if the word was removed, false if it was not in the set
+     */
+    public boolean remove(CharSequence word) {
+        int slot = find(word, false);
+        if (slot < 0) {
+            return false;
+        }
+
+        // Move later words of the probe sequence back so that lookups do not stop at the hole
+        int mask = words.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; words[next] != null; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                words[hole] = words[next];
+                hashes[hole] = hashes[next];
+                hole = next;
+            }
+        }
+        words[hole] = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets the number of words in the set.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates an independent copy of this set in time proportional to its capacity.
+     *
+     * @return a copy of the set
+     */
+    public WordSet copy() {
+        WordSet copy = new WordSet();
+        copy.words = words.clone();
+        copy.hashes = hashes.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Finds the slot holding a word.
+     *
+     * @param word the word to look up
+     * @param foldCase whether to convert the word to lower case first
+     * @return the slot of the word, or -1 if the set does not contain it
+     */
+    private int find(CharSequence word, boolean foldCase) {
+        int hash = hash(word, foldCase);
+        int mask = words.length - 1;
+        for (int slot = hash & mask; words[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(words[slot], word, foldCase)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the words into a table of the specified capacity.
+     *
+     * @param capacity the new capacity, a power of two
+     */
+    private void resize(int capacity) {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        words = new String[capacity];
+        hashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (words[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of a word, spreading the bits so that linear probing works well.
+     *
+     * @param word the word to hash
+     * @param foldCase whether to convert the characters to lower case first
+     * @return the hash of the word
+     */
+    static int hash(CharSequence word, boolean foldCase) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            hash = 31 * hash + (foldCase ? Character.toLowerCase(c) : c);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares a stored word with a word being looked up.
+     *
+     * @param stored the stored word
+     * @param word the word being looked up
+     * @param foldCase whether to convert the characters of the looked up word to lower case first
+     * @return true if the words are equal
+     */
+    static boolean matches(String stored, CharSequence word, boolean foldCase) {
+        if (stored.length() != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < stored.length(); i++) {
+            char c = word.charAt(i);
+            if (stored.charAt(i) != (foldCase ? Character.toLowerCase(c) : c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,246 @@
+package main.java.text_editor.search;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The WordTokenizer class splits text into words in a single forward pass.
+ * A word is a maximal run of characters that are not whitespace. Within each word the
+ * tokenizer also finds its clean part, which leaves out the leading and trailing characters
+ * that are not letters or digits, so "(hello)," has the clean part "hello".
+ *
+ * <p>The text is read chunk by chunk and words may span chunk boundaries. Apart from a
+ * character buffer that grows to the length of the longest clean word, the tokenizer does not
+ * allocate while scanning: every word is reported as offsets, and {@link #getCleanWord()}
+ * returns a view that is reused for every word. A tokenizer can be reused for several texts
+ * with {@link #reset(Iterator, int)}, but must not be shared between threads.</p>
+ *
+ * @author Ugnius Teišerskis
+ */
+public final class WordTokenizer {
+
+    /** The chunks of the text that have not been read yet */
+    private Iterator<CharSequence> chunks;
+
+    /** The chunk being read, or null before the first one */
+    private CharSequence chunk;
+
+    /** The offset of the next character within {@link #chunk} */
+    private int index;
+
+    /** The offset of the next character in the whole text */
+    private int position;
+
+    /** The beginning offset of the current word, inclusive */
+    private int wordStart;
+
+    /** The ending offset of the current word, exclusive */
+    private int wordEnd;
+
+    /** The beginning offset of the clean part of the current word, inclusive */
+    private int cleanStart;
+
+    /** The ending offset of the clean part of the current word, exclusive */
+    private int cleanEnd;
+
+    /** The characters of the current word read since its first letter or digit */
+    private char[] buffer = new char[32];
+
+    /** The clean part of the current word, backed by {@link #buffer} */
+    private final CharSequence cleanWord = new CleanWord();
+
+    /**
+     * Constructs a tokenizer over a text given as a single sequence.
+     *
+     * @param text the text to split into words
+     */
+    public WordTokenizer(CharSequence text) {
+        reset(Collections.singletonList(text).iterator(), 0);
+    }
+
+    /**
+     * Constructs a tokenizer over a text given as consecutive chunks.
+     *
+     * @param chunks the chunks of the text, in order
+     * @param startOffset the offset of the first chunk, added to every reported offset
+     */
+    public WordTokenizer(Iterator<CharSequence> chunks, int startOffset) {
+        reset(chunks, startOffset);
+    }
+
+    /**
+     * Starts tokenizing another text, reusing the buffers of this tokenizer.
+     *
+     * @param chunks the chunks of the text, in order
+     * @param startOffset the offset of the first chunk, added to every reported offset
+     * @return this tokenizer
+     */
+    public WordTokenizer reset(Iterator<CharSequence> chunks, int startOffset) {
+        this.chunks = chunks;
+        this.chunk = null;
+        this.index = 0;
+        this.position = startOffset;
+        this.wordStart = startOffset;
+        this.wordEnd = startOffset;
+        this.cleanStart = startOffset;
+        this.cleanEnd = startOffset;
+        return this;
+    }
+
+    /**
+     * Moves to the next word of the text.
+     *
+     * @return true if a word was found, false if the end of the text was reached
+     */
+    public boolean next() {
+        while (hasChar() && Character.isWhitespace(chunk.charAt(index))) {
+            advance();
+        }
+        if (!hasChar()) {
+            return false;
+        }
+
+        wordStart = position;
+        cleanStart = -1;
+        cleanEnd = -1;
+        int buffered = 0;
+        while (hasChar()) {
+            char c = chunk.charAt(index);
+            if (Character.isWhitespace(c)) {
+                break;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (cleanStart < 0) {
+                    cleanStart = position;
+                }
+                cleanEnd = position + 1;
+            }
+            if (cleanStart >= 0) {
+                if (buffered == buffer.length) {
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, buffered);
+                    buffer = grown;
+                }
+                buffer[buffered++] = c;
+            }
+            advance();
+        }
+        wordEnd = position;
+        if (cleanStart < 0) {
+            cleanStart = wordEnd;
+            cleanEnd = wordEnd;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the beginning offset of the current word.
+     *
+     * @return the offset of the first character of the word
+     */
+    public int getWordStart() {
+        return wordStart;
+    }
+
+    /**
+     * Gets the ending offset of the current word.
+     *
+     * @return the offset right after the last character of the word
+     */
+    public int getWordEnd() {
+        return wordEnd;
+    }
+
+    /**
+     * Gets the beginning offset of the clean part of the current word, which is the offset
+     * of its first letter or digit. Characters before it are leading punctuation.
+     *
+     * @return the beginning offset of the clean part
+     */
+    public int getCleanStart() {
+        return cleanStart;
+    }
+
+    /**
+     * Gets the ending offset of the clean part of the current word, which is the offset
+     * right after its last letter or digit. Characters from it to the word end are trailing punctuation.
+     *
+     * @return the ending offset of the clean part
+     */
+    public int getCleanEnd() {
+        return cleanEnd;
+    }
+
+    /**
+     * Checks whether the current word contains a letter or digit.
+     *
+     * @return true if the clean part of the word is not empty
+     */
+    public boolean hasCleanWord() {
+        return cleanStart < cleanEnd;
+    }
+
+    /**
+     * Gets the clean part of the current word.
+     * The returned view is reused and only valid until the next call to {@link #next()}.
+     *
+     * @return the clean part of the word
+     */
+    public CharSequence getCleanWord() {
+        return cleanWord;
+    }
+
+    /**
+     * Checks whether there is a character left to read, moving to the next chunk if needed.
+     *
+     * @return true if a character is available
+     */
+    private boolean hasChar() {
+        while (chunk == null || index >= chunk.length()) {
+            if (!chunks.hasNext()) {
+                return false;
+            }
+            chunk = chunks.next();
+            index = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Moves past the current character.
+     */
+    private void advance() {
+        index++;
+        position++;
+    }
+
+    /**
+     * The CleanWord class is a view of the clean part of the current word.
+     */
+    private final class CleanWord
+            implements CharSequence {
+
+        @Override
+        public int length() {
+            return cleanEnd - cleanStart;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+            }
+            return buffer[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, 0, length());
+        }
+    }
+}